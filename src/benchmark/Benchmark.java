@@ -0,0 +1,351 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import syntax_analyzer.CompilationEngine;
+import syntax_analyzer.JackAnalyzer;
+import syntax_analyzer.JackLexer;
+import syntax_analyzer.JackTokenizer;
+import syntax_analyzer.SourceText;
+import syntax_analyzer.TokenBuffer;
+import syntax_analyzer.XmlWriter;
+
+// measures the analyzer on a fixed set of .jack files, so a change can be compared with the run before it
+//   java benchmark.Benchmark [-time SECONDS] [-out FILE] [-compare FILE] (file.jack | directory)...
+// the files given (the nand2tetris project 10 directories, say) are used together with generated classes
+// that are much larger, and every result is written as one benchmark / metric / value line
+public class Benchmark
+{
+	public static double seconds = 1; // -time : how long each benchmark is measured, after as long a warmup
+	public static int[] generatedSizes = { 100, 2000 }; // subroutines in each generated class
+
+	public static ArrayList<String> names = new ArrayList<String>(); // name of each input
+	public static ArrayList<char[]> sources = new ArrayList<char[]>(); // its text
+	public static long checksum; // every result is added here and printed, so no work can be optimized away
+
+	// results in the order they were measured, "benchmark\tmetric" -> value
+	public static LinkedHashMap<String, Double> results = new LinkedHashMap<String, Double>();
+
+	public static void main(String[] args) throws Exception
+	{
+		String out = null;
+		String compare = null;
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-time"))
+				seconds = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-out"))
+				out = args[++i];
+			else if (args[i].equals("-compare"))
+				compare = args[++i];
+			else
+				addInput(new File(args[i]));
+		}
+
+		for (int size : generatedSizes)
+		{
+			names.add("generated" + size);
+			sources.add(new JackGenerator(size, 3, 0.2, 8).generate().toCharArray());
+		}
+
+		long chars = 0;
+		for (char[] s : sources)
+			chars += s.length;
+		System.out.println(sources.size() + " inputs, " + chars + " characters");
+
+		lexing();
+		lexingMapped();
+		parsing();
+		comments();
+		analyzing();
+
+		System.out.println("checksum " + checksum);
+
+		if (out != null)
+			write(out);
+		if (compare != null)
+			compare(read(compare));
+	}
+
+	// a .jack file, or every .jack file of a directory
+	public static void addInput(File f) throws IOException
+	{
+		if (f.isDirectory())
+		{
+			File[] children = f.listFiles();
+			Arrays.sort(children); // same order every run
+			for (File child : children)
+			{
+				if (child.getName().endsWith(".jack"))
+					addInput(child);
+			}
+			return;
+		}
+
+		names.add(f.getPath());
+		sources.add(new String(Files.readAllBytes(f.toPath()), StandardCharsets.ISO_8859_1).toCharArray());
+	}
+
+	// JackLexer over every input: MB/s and tokens/s
+	public static void lexing()
+	{
+		double ns = measure("lex", () ->
+		{
+			for (char[] s : sources)
+			{
+				TokenBuffer buffer = new TokenBuffer(SourceText.of(s, s.length), s.length / 3);
+				JackLexer.tokenize(buffer.source, buffer);
+				checksum += buffer.size;
+			}
+		});
+
+		report("lex", "MB/s", megabytes() / (ns / 1e9));
+		report("lex", "tokens/s", tokenCount() / (ns / 1e9));
+	}
+
+	// JackLexer over every input written to a file and mapped, as JackAnalyzer reads them: MB/s and tokens/s
+	// the files are mapped once, so this is lexing from the mapped bytes (SourceText.Bytes) against lexing from chars above
+	public static void lexingMapped() throws IOException
+	{
+		Path dir = Files.createTempDirectory("benchmark");
+		ArrayList<SourceText> mapped = new ArrayList<SourceText>();
+
+		for (int i = 0; i < sources.size(); i++)
+		{
+			Path file = dir.resolve("In" + i + ".jack");
+			Files.write(file, new String(sources.get(i)).getBytes(StandardCharsets.ISO_8859_1));
+			mapped.add(SourceText.map(file)); // an input that isn't pure ASCII comes back as chars, as it would in the analyzer
+		}
+
+		double ns = measure("lex mapped", () ->
+		{
+			for (SourceText s : mapped)
+			{
+				TokenBuffer buffer = new TokenBuffer(s, s.length() / 3);
+				JackLexer.tokenize(s, buffer);
+				checksum += buffer.size;
+			}
+		});
+
+		report("lex mapped", "MB/s", megabytes() / (ns / 1e9));
+		report("lex mapped", "tokens/s", tokenCount() / (ns / 1e9));
+
+		// Windows won't delete a file that is still mapped, there it is left in the temporary directory
+		for (File f : dir.toFile().listFiles())
+			f.delete();
+		dir.toFile().delete();
+	}
+
+	// compileClass() on tokens lexed beforehand, XML written to nowhere: tokens/s
+	public static void parsing()
+	{
+		ArrayList<TokenBuffer> lexed = new ArrayList<TokenBuffer>();
+		for (char[] s : sources)
+		{
+			TokenBuffer buffer = new TokenBuffer(SourceText.of(s, s.length), s.length / 3);
+			JackLexer.tokenize(buffer.source, buffer);
+			lexed.add(buffer);
+		}
+
+		double ns = measure("parse", () ->
+		{
+			for (TokenBuffer buffer : lexed)
+			{
+				CompilationEngine engine = new CompilationEngine(new JackTokenizer(buffer), new XmlWriter(OutputStream.nullOutputStream()));
+				engine.compileClass();
+				checksum += engine.diagnostics.size();
+			}
+		});
+
+		report("parse", "tokens/s", tokenCount() / (ns / 1e9));
+		report("parse", "MB/s", megabytes() / (ns / 1e9));
+	}
+
+	// JackTokenizer.removeComments, the regex path's comment stripper, on the inputs with a comment on every line: MB/s
+	public static void comments()
+	{
+		ArrayList<String> commented = new ArrayList<String>();
+		long chars = 0;
+
+		for (char[] s : sources)
+		{
+			StringBuilder text = new StringBuilder();
+			for (String line : new String(s).split("\n"))
+				text.append("/** ").append(line.trim()).append(" */ ").append(line).append(" // ").append(line.trim()).append('\n');
+
+			commented.add(text.toString());
+			chars += text.length();
+		}
+
+		JackTokenizer tokenizer = new JackTokenizer(new TokenBuffer(SourceText.of(new char[0], 0), 16));
+
+		double ns = measure("comments", () ->
+		{
+			for (String text : commented)
+				checksum += tokenizer.removeComments(text).length();
+		});
+
+		report("comments", "MB/s", chars / 1e6 / (ns / 1e9));
+	}
+
+	// JackAnalyzer.compile on each input as a file, both outputs written: per file latency
+	public static void analyzing() throws Exception
+	{
+		Path dir = Files.createTempDirectory("benchmark");
+		File[] files = new File[sources.size()];
+
+		for (int i = 0; i < files.length; i++)
+		{
+			files[i] = dir.resolve("In" + i + ".jack").toFile();
+			Files.write(files[i].toPath(), new String(sources.get(i)).getBytes(StandardCharsets.ISO_8859_1));
+		}
+
+		File completed = dir.resolve("Completed.xml").toFile();
+		File tokensOnly = dir.resolve("TokensOnly.xml").toFile();
+
+		// per file, so small and large files each get their own numbers
+		ArrayList<Double> millis = new ArrayList<Double>();
+		for (int i = 0; i < files.length; i++)
+		{
+			File f = files[i];
+			double ns = measure("analyze " + names.get(i), () ->
+			{
+				try
+				{
+					checksum += JackAnalyzer.compile(f, completed, tokensOnly).size();
+				}
+				catch (Exception e)
+				{
+					throw new RuntimeException(e);
+				}
+			});
+
+			millis.add(ns / 1e6);
+			report("analyze " + names.get(i), "ms/file", ns / 1e6);
+		}
+
+		double[] sorted = new double[millis.size()];
+		for (int i = 0; i < sorted.length; i++)
+			sorted[i] = millis.get(i);
+		Arrays.sort(sorted);
+
+		double total = 0;
+		for (double m : sorted)
+			total += m;
+
+		report("analyze", "mean ms/file", total / sorted.length);
+		report("analyze", "p50 ms/file", sorted[(sorted.length - 1) / 2]);
+		report("analyze", "max ms/file", sorted[sorted.length - 1]);
+
+		for (File f : dir.toFile().listFiles())
+			f.delete();
+		Files.delete(dir);
+	}
+
+	// run body for a warmup of the given time, then again for as long, return the mean nanoseconds per run
+	public static double measure(String name, Runnable body)
+	{
+		long warmupEnd = System.nanoTime() + (long) (seconds * 1e9);
+		while (System.nanoTime() < warmupEnd)
+			body.run();
+
+		long runs = 0;
+		long start = System.nanoTime();
+		long end = start + (long) (seconds * 1e9);
+		long now;
+
+		do
+		{
+			body.run();
+			runs++;
+			now = System.nanoTime();
+		}
+		while (now < end);
+
+		return (double) (now - start) / runs;
+	}
+
+	// keep a result and print it
+	public static void report(String benchmark, String metric, double value)
+	{
+		results.put(benchmark + "\t" + metric, value);
+		System.out.printf("%-40s %-14s %14.3f%n", benchmark, metric, value);
+	}
+
+	// write the results as tab separated benchmark, metric, value lines
+	public static void write(String file) throws IOException
+	{
+		try (PrintWriter w = new PrintWriter(file, "UTF-8"))
+		{
+			for (Map.Entry<String, Double> r : results.entrySet())
+				w.println(r.getKey() + "\t" + r.getValue());
+		}
+	}
+
+	// results written by an earlier run
+	public static LinkedHashMap<String, Double> read(String file) throws IOException
+	{
+		LinkedHashMap<String, Double> earlier = new LinkedHashMap<String, Double>();
+
+		List<String> lines = Files.readAllLines(new File(file).toPath(), StandardCharsets.UTF_8);
+		for (String line : lines)
+		{
+			int tab = line.lastIndexOf('\t');
+			if (tab > 0)
+				earlier.put(line.substring(0, tab), Double.parseDouble(line.substring(tab + 1)));
+		}
+
+		return earlier;
+	}
+
+	// print how each result changed since the earlier run
+	public static void compare(Map<String, Double> earlier)
+	{
+		System.out.println();
+		System.out.println("compared with the earlier run:");
+
+		for (Map.Entry<String, Double> r : results.entrySet())
+		{
+			Double before = earlier.get(r.getKey());
+			if (before == null)
+				continue;
+
+			String[] key = r.getKey().split("\t");
+			System.out.printf("%-40s %-14s %14.3f -> %14.3f  %+7.1f%%%n", key[0], key[1], before, r.getValue(), (r.getValue() / before - 1) * 100);
+		}
+	}
+
+	// characters of all inputs, in millions
+	private static double megabytes()
+	{
+		long chars = 0;
+		for (char[] s : sources)
+			chars += s.length;
+		return chars / 1e6;
+	}
+
+	// tokens of all inputs
+	private static long tokenCount()
+	{
+		long count = 0;
+		for (char[] s : sources)
+		{
+			TokenBuffer buffer = new TokenBuffer(SourceText.of(s, s.length), s.length / 3);
+			JackLexer.tokenize(buffer.source, buffer);
+			count += buffer.size;
+		}
+		return count;
+	}
+}
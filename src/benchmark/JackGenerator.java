@@ -0,0 +1,168 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+// writes valid Jack classes of any size, for measuring the analyzer on inputs far larger than real programs
+// every setting is a public field, the same settings and seed always give the same text
+public class JackGenerator
+{
+	public int subroutines = 10; // number of subroutines in the class
+	public int depth = 3; // how deep statements nest in each subroutine, and parentheses in the expression of its do statement
+	public double commentDensity = 0.2; // share of lines that get a comment, 0 to 1
+	public int identifierLength = 6; // length of every variable and subroutine name, at least long enough to keep them apart
+	public long seed = 1;
+
+	private Random random;
+	private StringBuilder s;
+	private int line; // lines written, to tell the kind of each comment
+
+	public JackGenerator()
+	{
+	}
+
+	public JackGenerator(int subroutines, int depth, double commentDensity, int identifierLength)
+	{
+		this.subroutines = subroutines;
+		this.depth = depth;
+		this.commentDensity = commentDensity;
+		this.identifierLength = identifierLength;
+	}
+
+	// the whole class as text
+	public String generate()
+	{
+		begin();
+		for (int i = 0; i < subroutines; i++)
+			subroutine(i);
+		end();
+
+		return s.toString();
+	}
+
+	// write the class to out a subroutine at a time, so a class far bigger than the heap can be made
+	public void generate(Writer out) throws IOException
+	{
+		begin();
+		for (int i = 0; i < subroutines; i++)
+		{
+			subroutine(i);
+			out.append(s);
+			s.setLength(0);
+		}
+		end();
+
+		out.append(s);
+		s.setLength(0);
+	}
+
+	private void begin()
+	{
+		random = new Random(seed);
+		s = new StringBuilder();
+		line = 0;
+
+		line(0, "class " + name("Gen", 0) + " {");
+		line(1, "field int " + name("field", 0) + ", " + name("field", 1) + ";");
+		line(1, "static Array " + name("cells", 0) + ";");
+	}
+
+	private void end()
+	{
+		line(0, "}");
+	}
+
+	private void subroutine(int n)
+	{
+		if (random.nextDouble() < commentDensity)
+			line(1, "/** subroutine " + n + ", returns the sum of its cells */");
+
+		line(1, "method int " + name("sub", n) + "(int " + name("arg", 0) + ", boolean " + name("flag", 0) + ", Array " + name("arr", 0) + ") {");
+		line(2, "var int " + name("i", 0) + ", " + name("sum", 0) + ";");
+		line(2, "var String " + name("text", 0) + ";");
+		line(2, "let " + name("text", 0) + " = \"subroutine " + n + "\";");
+
+		statements(2, depth);
+
+		line(2, "do " + name("sub", n) + "(" + expression(depth) + ", true, " + name("cells", 0) + ");");
+		line(2, "return " + name("sum", 0) + " + " + name("field", 0) + ";");
+		line(1, "}");
+	}
+
+	// a few statements, with a while or an if holding the statements of the next level
+	private void statements(int indent, int levels)
+	{
+		line(indent, "let " + name("arr", 0) + "[" + name("i", 0) + "] = " + expression(2) + ";");
+
+		if (levels == 0)
+		{
+			line(indent, "do Output.printString(" + name("text", 0) + ");");
+			return;
+		}
+
+		if (random.nextBoolean())
+		{
+			line(indent, "while (" + name("i", 0) + " < " + expression(1) + ") {");
+			statements(indent + 1, levels - 1);
+			line(indent + 1, "let " + name("i", 0) + " = " + name("i", 0) + " + 1;");
+			line(indent, "}");
+		}
+		else
+		{
+			line(indent, "if ((" + name("flag", 0) + " & (" + name("i", 0) + " > 5)) | ~(" + name("sum", 0) + " = 0)) {");
+			statements(indent + 1, levels - 1);
+			line(indent, "}");
+			line(indent, "else {");
+			line(indent + 1, "let " + name("sum", 0) + " = " + name("sum", 0) + " - Math.multiply(" + name("arr", 0) + "[" + name("i", 0) + "], -" + name("arg", 0) + ");");
+			line(indent, "}");
+		}
+	}
+
+	// an expression with terms in parentheses nested levels deep
+	private String expression(int levels)
+	{
+		String term;
+
+		switch (random.nextInt(4))
+		{
+			case 0:  term = name("sum", 0); break;
+			case 1:  term = String.valueOf(random.nextInt(32768)); break;
+			case 2:  term = name("arr", 0) + "[" + name("i", 0) + "]"; break;
+			default: term = name("field", 1); break;
+		}
+
+		if (levels <= 1)
+			return term;
+
+		return term + " + (" + expression(levels - 1) + ")";
+	}
+
+	// the n-th name of a kind, padded to identifierLength
+	private String name(String kind, int n)
+	{
+		StringBuilder name = new StringBuilder(kind).append(n);
+		while (name.length() < identifierLength)
+			name.append('_');
+		return name.toString();
+	}
+
+	// write a line, giving it a comment with a chance of commentDensity
+	private void line(int indent, String text)
+	{
+		for (int i = 0; i < Math.min(indent, 8); i++) // deep nesting would make the text mostly tabs
+			s.append('\t');
+		s.append(text);
+
+		if (random.nextDouble() < commentDensity)
+		{
+			if (line % 2 == 0)
+				s.append(" // line ").append(line).append(", ").append(text.length()).append(" characters");
+			else
+				s.append(" /* line ").append(line).append(" */");
+		}
+
+		s.append('\n');
+		line++;
+	}
+}
@@ -0,0 +1,140 @@
+package benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import syntax_analyzer.JackAnalyzer;
+
+// analyzes generated classes at doubling sizes and fails when time or allocation grows faster than the input
+//   java benchmark.ScalingCheck [-runs N] [-steps N]
+// each series doubles one setting of JackGenerator: the number of subroutines (with few and with many comments),
+// the nesting depth, and the identifier length; the exit status is 1 if any series grows superlinearly
+public class ScalingCheck
+{
+	public static int runs = 5; // -runs : analyses of each input, the fastest one counts
+	public static int steps = 5; // -steps : sizes in each series, each twice the one before
+	public static double maxTimeExponent = 1.3; // time may grow as size^1.3 before it counts as superlinear, timing is noisy
+	public static double maxAllocationExponent = 1.1; // allocation is exact, so less slack
+
+	private static Path dir;
+	private static boolean failed;
+
+	public static void main(String[] args) throws Exception
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-runs"))
+				runs = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-steps"))
+				steps = Integer.parseInt(args[++i]);
+		}
+
+		dir = Files.createTempDirectory("scaling");
+
+		// deep nesting recurses through the parser, so it runs with a stack big enough for the deepest input
+		Thread t = new Thread(null, () ->
+		{
+			try
+			{
+				run();
+			}
+			catch (Exception e)
+			{
+				throw new RuntimeException(e);
+			}
+		}, "scaling", 1L << 30);
+
+		t.start();
+		t.join();
+
+		for (File f : dir.toFile().listFiles())
+			f.delete();
+		Files.delete(dir);
+
+		System.out.println(failed ? "FAILED" : "PASSED");
+		System.exit(failed ? 1 : 0);
+	}
+
+	private static void run() throws Exception
+	{
+		// warm the JIT up on a medium input, so the first sizes aren't measured interpreted
+		File warmup = write(new JackGenerator(400, 4, 0.3, 8).generate());
+		for (int i = 0; i < 20; i++)
+			analyze(warmup);
+
+		series("subroutines", 250, (g, n) -> g.subroutines = n, new JackGenerator(0, 3, 0.1, 6));
+		series("subroutines, comment on every line", 250, (g, n) -> g.subroutines = n, new JackGenerator(0, 3, 1.0, 6));
+		series("depth", 64, (g, n) -> g.depth = n, new JackGenerator(20, 0, 0.1, 6));
+		series("identifier length", 16, (g, n) -> g.identifierLength = n, new JackGenerator(200, 3, 0.1, 0));
+	}
+
+	interface Setting
+	{
+		void set(JackGenerator g, int n);
+	}
+
+	// analyze the generator's class with the setting at first, 2 * first, 4 * first... and check the growth
+	private static void series(String name, int first, Setting setting, JackGenerator g) throws Exception
+	{
+		System.out.println(name + ":");
+		System.out.printf("%10s %12s %12s %14s%n", "setting", "characters", "ms", "bytes");
+
+		ArrayList<double[]> points = new ArrayList<double[]>(); // characters, ms, bytes
+
+		for (int i = 0, n = first; i < steps; i++, n *= 2)
+		{
+			setting.set(g, n);
+			String text = g.generate();
+			File f = write(text);
+
+			long best = Long.MAX_VALUE;
+			long bytes = 0;
+			for (int r = 0; r < runs; r++)
+			{
+				long before = allocated();
+				long start = System.nanoTime();
+				analyze(f);
+				best = Math.min(best, System.nanoTime() - start);
+				bytes = allocated() - before; // the same every run
+			}
+
+			points.add(new double[] { text.length(), best / 1e6, bytes });
+			System.out.printf("%10d %12d %12.3f %14d%n", n, text.length(), best / 1e6, bytes);
+		}
+
+		// growth from the smallest to the largest input, as the power of the input size it matches
+		double[] small = points.get(0);
+		double[] large = points.get(points.size() - 1);
+		double size = Math.log(large[0] / small[0]);
+		double time = Math.log(large[1] / small[1]) / size;
+		double allocation = Math.log(large[2] / small[2]) / size;
+
+		boolean ok = time <= maxTimeExponent && allocation <= maxAllocationExponent;
+		System.out.printf("  time ~ size^%.2f, allocation ~ size^%.2f  %s%n%n", time, allocation, ok ? "ok" : "SUPERLINEAR");
+
+		if (!ok)
+			failed = true;
+	}
+
+	private static File write(String text) throws Exception
+	{
+		File f = dir.resolve("Gen.jack").toFile();
+		Files.write(f.toPath(), text.getBytes(StandardCharsets.ISO_8859_1));
+		return f;
+	}
+
+	private static void analyze(File f) throws Exception
+	{
+		JackAnalyzer.compile(f, dir.resolve("GenCompleted.xml").toFile(), dir.resolve("GenTokensOnly.xml").toFile());
+	}
+
+	// bytes allocated by this thread so far
+	private static long allocated()
+	{
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,134 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+// analyzes one generated class much bigger than the heap with JackAnalyzer -stream, to show memory doesn't grow with the file
+//   java benchmark.StreamingCheck [-size MB] [-heap MB] [-keep]
+// the class is written a subroutine at a time to a temporary directory and analyzed by a second JVM started with
+// -Xmx set to the heap given; the exit status is 1 if that runs out of memory, prints anything but the file's name,
+// or leaves a Completed.xml that doesn't end with the class end tag
+public class StreamingCheck
+{
+	public static int sizeMB = 500; // -size : size of the generated class
+	public static int heapMB = 32; // -heap : -Xmx of the JVM that analyzes it
+	public static boolean keep = false; // -keep : leave the class and its outputs in the temporary directory
+
+	public static void main(String[] args) throws Exception
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-size"))
+				sizeMB = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-heap"))
+				heapMB = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-keep"))
+				keep = true;
+		}
+
+		Path dir = Files.createTempDirectory("streaming");
+		File source = dir.resolve("Gen.jack").toFile();
+
+		long start = System.nanoTime();
+		generate(source, (long) sizeMB << 20);
+		System.out.printf("generated %s, %d MB in %.1f s%n", source, source.length() >> 20, (System.nanoTime() - start) / 1e9);
+
+		start = System.nanoTime();
+		boolean ok = analyze(source);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("analyzed with -Xmx%dm in %.1f s, %.1f MB/s%n", heapMB, seconds, (source.length() >> 20) / seconds);
+
+		File completed = dir.resolve("GenCompleted.xml").toFile();
+		if (ok && !endsWithClass(completed))
+		{
+			System.out.println(completed + " doesn't end with </class>");
+			ok = false;
+		}
+
+		if (keep)
+		{
+			System.out.println("kept in " + dir);
+		}
+		else
+		{
+			for (File f : dir.toFile().listFiles())
+				f.delete();
+			Files.delete(dir);
+		}
+
+		System.out.println(ok ? "PASSED" : "FAILED");
+		System.exit(ok ? 0 : 1);
+	}
+
+	// write a class of about bytes characters to f, one subroutine at a time
+	private static void generate(File f, long bytes) throws Exception
+	{
+		JackGenerator g = new JackGenerator(100, 3, 0.2, 6);
+		long per100 = g.generate().length(); // characters per hundred subroutines, near enough
+		g.subroutines = (int) Math.max(1, bytes * 100 / per100);
+
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.ISO_8859_1), 1 << 20))
+		{
+			g.generate(out);
+		}
+	}
+
+	// run JackAnalyzer -stream on f in a JVM of its own, true if it finished and printed nothing but the file
+	private static boolean analyze(File f) throws Exception
+	{
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		ProcessBuilder builder = new ProcessBuilder(java, "-Xmx" + heapMB + "m", "-cp", System.getProperty("java.class.path"),
+				"syntax_analyzer.JackAnalyzer", "-stream", f.getPath());
+		builder.redirectErrorStream(true);
+
+		Process p = builder.start();
+		ArrayList<String> output = new ArrayList<String>();
+
+		try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream())))
+		{
+			for (String line = r.readLine(); line != null; line = r.readLine())
+				output.add(line);
+		}
+
+		int status = p.waitFor();
+
+		// The converted files are:, then the file's name - an error or a stack trace would come after it
+		String name = f.getParent() + "/" + f.getName().replaceAll("\\..*", "");
+		boolean ok = status == 0 && output.size() == 2 && output.get(1).equals(name);
+
+		if (!ok)
+		{
+			System.out.println("exit status " + status + ", output:");
+			for (String line : output)
+				System.out.println("  " + line);
+		}
+
+		return ok;
+	}
+
+	private static boolean endsWithClass(File f) throws Exception
+	{
+		byte[] end = ("</class>" + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+		if (f.length() < end.length)
+			return false;
+
+		try (RandomAccessFile r = new RandomAccessFile(f, "r"))
+		{
+			byte[] last = new byte[end.length];
+			r.seek(f.length() - end.length);
+			r.readFully(last);
+			return new String(last, StandardCharsets.US_ASCII).equals(new String(end, StandardCharsets.US_ASCII));
+		}
+	}
+}
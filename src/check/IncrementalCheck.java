@@ -0,0 +1,178 @@
+package check;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import benchmark.JackGenerator;
+import syntax_analyzer.CompilationEngine;
+import syntax_analyzer.IncrementalAnalyzer;
+import syntax_analyzer.JackLexer;
+import syntax_analyzer.JackTokenizer;
+import syntax_analyzer.SourceText;
+import syntax_analyzer.TokenBuffer;
+import syntax_analyzer.XmlWriter;
+
+// makes random edits to .jack files with IncrementalAnalyzer and compares its Completed.xml after every edit
+// with the one a full parse of the edited text writes
+//   java check.IncrementalCheck [-edits N] [-seed N] (file.jack | directory)...
+// the files given are used together with a few generated classes; the exit status is 1 if any edit differs
+public class IncrementalCheck
+{
+	public static int edits = 150; // -edits : edits made to each input
+	public static long seed = 1; // -seed : the same seed always makes the same edits
+
+	// text an edit inserts: single characters that start or end tokens, strings and comments, and whole declarations
+	// and statements, so edits split tokens, open comments that swallow members, and add or remove members
+	private static final String[] inserts = { "", " ", "x", "1", "\"", "\"s\"", "/", "*", "//c\n", "/*", "*/", "{", "}", "(", ")",
+		";", ",", "var int y;", "field int a;", "static boolean b;", "function void f() { return; }",
+		"method int g(int a, char b) { let a = b; return a; }", "constructor Foo new() { return this; }",
+		"if (x < 1) { let y = 2; } else { do f(); }", "while (true) { }", "let x = x + 1;", "class", "else", "return", "\n",
+		"-", "~", "[", "]", "99999", "a.b(1,2)", "}}", "int", "void" };
+
+	private static ArrayList<String> names = new ArrayList<String>(); // name of each input
+	private static ArrayList<String> sources = new ArrayList<String>(); // its text
+
+	private static int failures;
+
+	public static void main(String[] args) throws Exception
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-edits"))
+				edits = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-seed"))
+				seed = Long.parseLong(args[++i]);
+			else
+				addInput(new File(args[i]));
+		}
+
+		for (int size : new int[] { 1, 10, 50 })
+		{
+			JackGenerator g = new JackGenerator(size, 3, 0.2, 6);
+			g.seed = size;
+			names.add("generated" + size);
+			sources.add(g.generate());
+		}
+
+		Random random = new Random(seed);
+		long lexed = 0;
+		long parsed = 0;
+		long made = 0;
+
+		for (int i = 0; i < sources.size(); i++)
+		{
+			String original = sources.get(i);
+			String text = original;
+			IncrementalAnalyzer analyzer = new IncrementalAnalyzer(text);
+
+			for (int n = 0; n < edits; n++)
+			{
+				if (n % 10 == 0) // back to the original now and then, so the edits stay near real code
+				{
+					text = original;
+					analyzer = new IncrementalAnalyzer(text);
+				}
+
+				int offset = random.nextInt(text.length() + 1);
+				int removed = Math.min(random.nextInt(random.nextBoolean() ? 3 : 30), text.length() - offset);
+				String inserted = inserts[random.nextInt(inserts.length)];
+				text = text.substring(0, offset) + inserted + text.substring(offset + removed);
+
+				String want;
+				String got;
+				try
+				{
+					want = fullParse(text);
+				}
+				catch (Exception | StackOverflowError e)
+				{
+					want = "ERROR! " + e;
+				}
+
+				try
+				{
+					analyzer.edit(offset, removed, inserted);
+					ByteArrayOutputStream xml = new ByteArrayOutputStream();
+					analyzer.writeXml(xml);
+					got = xml.toString(StandardCharsets.ISO_8859_1.name());
+
+					lexed += analyzer.tokensLexed;
+					parsed += analyzer.membersParsed;
+					made++;
+				}
+				catch (Exception | StackOverflowError e)
+				{
+					got = "ERROR! " + e;
+				}
+
+				if (got.equals(want))
+					continue;
+
+				failures++;
+				if (failures <= 5)
+				{
+					System.out.println(names.get(i) + ", edit " + n + ": offset " + offset + ", " + removed + " removed, inserted \"" + inserted.replace("\n", "\\n") + "\"");
+					System.out.println("  the full parse and the incremental one differ from line " + firstDifferentLine(want, got));
+				}
+
+				analyzer = new IncrementalAnalyzer(text); // go on from a result that is right
+			}
+		}
+
+		System.out.printf("%d inputs, %d edits: %.1f tokens lexed and %.2f members parsed per edit%n", sources.size(), made,
+				made == 0 ? 0 : (double) lexed / made, made == 0 ? 0 : (double) parsed / made);
+		if (failures > 0)
+			System.out.println(failures + " edits differ from a full parse");
+
+		System.out.println(failures > 0 ? "FAILED" : "PASSED");
+		System.exit(failures > 0 ? 1 : 0);
+	}
+
+	// a .jack file, or every .jack file of a directory
+	private static void addInput(File f) throws IOException
+	{
+		if (f.isDirectory())
+		{
+			File[] children = f.listFiles();
+			Arrays.sort(children); // same order, and so the same edits, every run
+			for (File child : children)
+			{
+				if (child.getName().endsWith(".jack"))
+					addInput(child);
+			}
+			return;
+		}
+
+		names.add(f.getPath());
+		sources.add(new String(Files.readAllBytes(f.toPath()), StandardCharsets.ISO_8859_1));
+	}
+
+	// Completed.xml of text, lexed and parsed from the start
+	private static String fullParse(String text) throws IOException
+	{
+		char[] chars = text.toCharArray();
+		TokenBuffer tokens = new TokenBuffer(SourceText.of(chars, chars.length), chars.length / 3);
+		JackLexer.tokenize(tokens.source, tokens);
+
+		ByteArrayOutputStream xml = new ByteArrayOutputStream();
+		new CompilationEngine(new JackTokenizer(tokens), new XmlWriter(xml)).compileClass();
+		return xml.toString(StandardCharsets.ISO_8859_1.name());
+	}
+
+	private static int firstDifferentLine(String a, String b)
+	{
+		String[] x = a.split("\n", -1);
+		String[] y = b.split("\n", -1);
+
+		int line = 0;
+		while (line < x.length && line < y.length && x[line].equals(y[line]))
+			line++;
+		return line + 1;
+	}
+}
@@ -0,0 +1,110 @@
+package check;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import syntax_analyzer.JackAnalyzer;
+
+// analyzes small broken classes and compares the syntax errors reported with the ones each should give
+//   java check.MalformedCheck
+// every case is analyzed with JackLexer and with the -regex lexer, and its Completed.xml must hold one <error>
+// per error reported; the exit status is 1 if anything differs
+public class MalformedCheck
+{
+	// the source of each case, then its errors as they are printed after file.jack:
+	private static final String[][] cases = {
+		// the file ends inside a subroutine: the subroutine and the class both miss their '}', reported once
+		{ "class T { method void f() { let x = 1;",
+			"1:39: expected '}' but found end of file" },
+
+		// comments and indentation before the errors, the -regex lexer used to count from text without them
+		{ "/** doc\n * comment\n */\nclass T {\n  // a line comment\n  function void f() {\n    let x = ;\n    do /* block */ g(;\n  }\n}\n",
+			"7:13: expected expression but found ';'", "8:22: expected ')' but found ';'" },
+
+		// integer constants past 32767, and past what an int holds, are reported and the parse goes on
+		{ "class T {\n  function void f() {\n    let x = 32768 + 99999999999;\n    let y = 32767;\n    let z = ;\n  }\n}\n",
+			"3:13: expected an integer constant from 0 to 32767 but found '32768'",
+			"3:21: expected an integer constant from 0 to 32767 but found '99999999999'",
+			"5:13: expected expression but found ';'" },
+
+		// a string constant never closed runs to the end of its line
+		{ "class T {\n  function void f() {\n    do Output.printString(\"no end);\n    let x = 1;\n  }\n}\n",
+			"3:27: expected '\"' (unterminated string constant) but found '\"no end);'",
+			"4:5: expected ')' but found 'let'" },
+
+		// a lone '\r' ends an unterminated string as well, so the // after it is a comment for both lexers
+		{ "class T {\r\n  function void f() {\r\n    do g(\"abc\r// x \"y\r\n    let z = 1;\r\n  }\r\n}\r\n",
+			"3:10: expected '\"' (unterminated string constant) but found '\"abc'",
+			"4:5: expected ')' but found 'let'" },
+	};
+
+	private static Path dir;
+	private static boolean failed;
+
+	public static void main(String[] args) throws Exception
+	{
+		dir = Files.createTempDirectory("malformed");
+
+		for (int i = 0; i < cases.length; i++)
+		{
+			check(i, false);
+			check(i, true);
+		}
+
+		for (File f : dir.toFile().listFiles())
+			f.delete();
+		Files.delete(dir);
+
+		System.out.println(failed ? "FAILED" : "PASSED");
+		System.exit(failed ? 1 : 0);
+	}
+
+	private static void check(int n, boolean regex) throws Exception
+	{
+		String[] c = cases[n];
+		List<String> want = Arrays.asList(c).subList(1, c.length);
+
+		File source = dir.resolve("T.jack").toFile();
+		File completed = dir.resolve("TCompleted.xml").toFile();
+		Files.write(source.toPath(), c[0].getBytes(StandardCharsets.ISO_8859_1));
+
+		List<String> got;
+		JackAnalyzer.regexLexer = regex;
+		try
+		{
+			got = JackAnalyzer.messages(JackAnalyzer.compile(source, completed, dir.resolve("TTokensOnly.xml").toFile()));
+		}
+		catch (Exception e)
+		{
+			got = new ArrayList<String>();
+			got.add("ERROR! " + e);
+		}
+		finally
+		{
+			JackAnalyzer.regexLexer = false;
+		}
+
+		int elements = 0;
+		if (completed.exists())
+		{
+			for (String line : Files.readAllLines(completed.toPath(), StandardCharsets.ISO_8859_1))
+			{
+				if (line.startsWith("<error>"))
+					elements++;
+			}
+		}
+
+		if (got.equals(want) && elements == want.size())
+			return;
+
+		failed = true;
+		System.out.println("case " + n + (regex ? " (-regex)" : "") + ": " + c[0].replace("\n", "\\n"));
+		System.out.println("  expected " + want);
+		System.out.println("  reported " + got + ", " + elements + " <error> elements");
+	}
+}
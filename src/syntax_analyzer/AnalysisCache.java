@@ -0,0 +1,195 @@
+package syntax_analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// on-disk record of which .jack files were already analyzed, so unchanged files can be skipped
+// there is one entry per source file, holding the hash of the content it was analyzed with,
+// the size and time of the outputs written for it and the syntax errors found in it
+public class AnalysisCache
+{
+	public static final int LOCKS = 64; // lock files, each entry is guarded by one of them picked by its name
+
+	public Path dir; // directory holding the entries
+
+	private final ReentrantLock[] threadLocks = new ReentrantLock[LOCKS]; // the same stripes for the threads of this run
+
+	public AnalysisCache(Path d) throws IOException
+	{
+		dir = d;
+		Files.createDirectories(dir);
+
+		for (int i = 0; i < LOCKS; i++)
+			threadLocks[i] = new ReentrantLock();
+	}
+
+	// a lock taken by lock(), close() releases it
+	public static class Held
+	{
+		private final FileChannel channel;
+		private final ReentrantLock threadLock;
+
+		private Held(FileChannel channel, ReentrantLock threadLock)
+		{
+			this.channel = channel;
+			this.threadLock = threadLock;
+		}
+
+		public void close() throws IOException
+		{
+			try
+			{
+				channel.close(); // releases the file lock
+			}
+			finally
+			{
+				threadLock.unlock();
+			}
+		}
+	}
+
+	// hash of the file content, the analyzer version and the options that change the output
+	public String key(File source) throws IOException
+	{
+		String options = (JackAnalyzer.regexLexer ? " regex" : "") + (JackAnalyzer.writeTokens ? "" : " no-tokens") + (JackAnalyzer.writeParse ? "" : " no-parse") + (JackAnalyzer.writeBinary ? " binary" : "");
+
+		MessageDigest digest = sha256();
+		digest.update((JackAnalyzer.VERSION + options + "\n").getBytes(StandardCharsets.UTF_8));
+
+		try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ))
+		{
+			digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+
+		return hex(digest.digest());
+	}
+
+	// the syntax errors recorded for source if it is up to date, null if it has to be analyzed again
+	public List<String> errors(File source, String key, File... outputs) throws IOException
+	{
+		Path entry = entry(source);
+		if (!Files.exists(entry))
+			return null;
+
+		List<String> lines = Files.readAllLines(entry, StandardCharsets.UTF_8);
+		if (lines.size() < outputs.length + 1 || !lines.get(0).equals(key))
+			return null;
+
+		for (int i = 0; i < outputs.length; i++)
+		{
+			if (!lines.get(i + 1).equals(stamp(outputs[i]))) // output deleted or changed since
+				return null;
+		}
+
+		return lines.subList(outputs.length + 1, lines.size());
+	}
+
+	// remember that source was analyzed with this key, writing outputs and finding errors
+	public void record(File source, String key, List<String> errors, File... outputs) throws IOException
+	{
+		StringBuilder text = new StringBuilder(key).append('\n');
+		for (File output : outputs)
+			text.append(stamp(output)).append('\n');
+		for (String error : errors)
+			text.append(error).append('\n');
+
+		// write a temporary file and move it over the entry, so a concurrent run never reads half an entry
+		Path entry = entry(source);
+		Path temp = Files.createTempFile(dir, "entry", ".tmp");
+		Files.write(temp, text.toString().getBytes(StandardCharsets.UTF_8));
+		Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// lock the entry of source against the other threads of this run and other processes, until the result is closed
+	// sources share the LOCKS lock files, so the cache directory only ever holds that many
+	// a file lock belongs to the whole process, so the threads wait on the stripe's ReentrantLock first
+	// and only one of them at a time waits for the file
+	public Held lock(File source) throws IOException
+	{
+		int stripe = Integer.parseInt(name(source).substring(0, 4), 16) % LOCKS;
+		ReentrantLock threadLock = threadLocks[stripe];
+		threadLock.lock();
+
+		FileChannel channel = null;
+		try
+		{
+			channel = FileChannel.open(dir.resolve("lock" + stripe), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+			while (true)
+			{
+				try
+				{
+					channel.lock(); // waits for other processes
+					return new Held(channel, threadLock);
+				}
+				catch (IOException e)
+				{
+					// file locks belong to the process: when two runs each hold a stripe while another of their threads waits
+					// for the other's, the kernel calls it a deadlock - it isn't one, each holder lets go once its file is done
+					if (e.getMessage() == null || !e.getMessage().toLowerCase().contains("deadlock"))
+						throw e;
+					LockSupport.parkNanos(1000000);
+				}
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			if (channel != null)
+				channel.close();
+			threadLock.unlock();
+			throw e;
+		}
+	}
+
+	// entry file of source, named after its absolute path
+	private Path entry(File source)
+	{
+		return dir.resolve(name(source));
+	}
+
+	private String name(File source)
+	{
+		return hex(sha256().digest(source.getAbsolutePath().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	// size and modification time of an output file, "-" if it doesn't exist
+	private static String stamp(File output)
+	{
+		if (!output.isFile())
+			return "-";
+
+		return output.length() + " " + output.lastModified();
+	}
+
+	private static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) // every Java platform has SHA-256
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes)
+	{
+		StringBuilder s = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			s.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+
+		return s.toString();
+	}
+}
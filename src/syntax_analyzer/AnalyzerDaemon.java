@@ -0,0 +1,221 @@
+package syntax_analyzer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// JackAnalyzer -daemon / -port N : one JVM that stays up and analyzes what each request names, so the
+// JIT-compiled lexer and parser are reused instead of every build step paying for a new JVM
+//
+// a request is one line of tab separated fields: an id, the output directory (empty: next to each source),
+// then the .jack files and directories to analyze
+// the answer is every line JackAnalyzer prints for those files, each after the id and a tab, then the line
+// id \t done \t number of files - requests run at the same time and each is answered when all its files are done,
+// except that requests writing to the same directory take turns, so two of them never write the same output file
+public class AnalyzerDaemon
+{
+	public static final int DIR_LOCKS = 64; // output directories share these locks, so there are never more of them
+
+	private final ReentrantLock[] dirLocks = new ReentrantLock[DIR_LOCKS];
+	public ExecutorService pool; // analyzes the files of every request
+	public ExecutorService requests = Executors.newCachedThreadPool(); // reads connections and waits for the files of each request
+
+	public AnalyzerDaemon(int threads)
+	{
+		pool = Executors.newFixedThreadPool(threads);
+
+		for (int i = 0; i < DIR_LOCKS; i++)
+			dirLocks[i] = new ReentrantLock();
+	}
+
+	// answer the requests read from in on out, until in ends and every request is answered
+	public void serve(InputStream in, OutputStream out) throws IOException, InterruptedException
+	{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		ArrayList<Future<?>> running = new ArrayList<Future<?>>();
+
+		String line;
+		while ((line = reader.readLine()) != null)
+		{
+			if (line.isEmpty())
+				continue;
+
+			String request = line;
+			running.add(requests.submit(() -> answer(request, writer)));
+		}
+
+		for (Future<?> request : running)
+		{
+			try
+			{
+				request.get();
+			}
+			catch (ExecutionException e) // answer catches everything, nothing gets here
+			{
+			}
+		}
+
+		writer.flush();
+	}
+
+	// serve every connection made to port on the loopback address, until the process is stopped
+	public void listen(int port) throws IOException
+	{
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress()))
+		{
+			System.out.println("listening on " + server.getLocalSocketAddress());
+
+			while (true)
+			{
+				Socket socket = server.accept();
+				requests.submit(() ->
+				{
+					try (Socket s = socket)
+					{
+						serve(s.getInputStream(), s.getOutputStream());
+					}
+					catch (Exception e) // the client went away, the others carry on
+					{
+					}
+				});
+			}
+		}
+	}
+
+	// analyze the files of one request on the pool, then write its answer
+	public void answer(String request, PrintWriter out)
+	{
+		String[] fields = request.split("\t", -1);
+		String id = fields[0];
+		File outDir = fields.length > 1 && !fields[1].isEmpty() ? new File(fields[1]) : null;
+
+		InternPool.renew(); // names of earlier requests don't pile up
+
+		StringBuilder log = new StringBuilder();
+		ArrayList<File> files = JackAnalyzer.collect(Arrays.asList(fields).subList(Math.min(2, fields.length), fields.length), log);
+
+		files = distinct(files); // a file named twice, or also in a directory named, would be written twice at once
+
+		if (outDir != null)
+			outDir.mkdirs();
+
+		ArrayList<ReentrantLock> locks = lock(outDir, files);
+		try
+		{
+			JackAnalyzer.monitor.queueDepth.addAndGet(files.size());
+
+			ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+			for (File f : files)
+				results.add(pool.submit(() -> JackAnalyzer.analyzeQueued(f, outDir)));
+
+			for (Future<String> result : results)
+			{
+				try
+				{
+					log.append(result.get());
+				}
+				catch (InterruptedException | ExecutionException e)
+				{
+					log.append("ERROR!").append(System.lineSeparator());
+				}
+			}
+		}
+		finally
+		{
+			for (ReentrantLock l : locks)
+				l.unlock();
+		}
+
+		synchronized (out) // answers of requests finishing together don't mix
+		{
+			for (String line : log.toString().split(System.lineSeparator()))
+			{
+				if (!line.isEmpty())
+					out.print(id + "\t" + line + "\n");
+			}
+			out.print(id + "\tdone\t" + files.size() + "\n");
+			out.flush();
+		}
+	}
+
+	// take the locks of the directories a request writes to: outDir, or the directory of each file if it is null
+	// always in the same order, so two requests waiting for each other's directories can't both be stuck
+	private ArrayList<ReentrantLock> lock(File outDir, ArrayList<File> files)
+	{
+		TreeSet<Integer> stripes = new TreeSet<Integer>();
+		if (outDir != null)
+			stripes.add(stripe(outDir));
+		else
+		{
+			for (File f : files)
+				stripes.add(stripe(f.getAbsoluteFile().getParentFile()));
+		}
+
+		ArrayList<ReentrantLock> locks = new ArrayList<ReentrantLock>();
+		for (int s : stripes)
+		{
+			dirLocks[s].lock();
+			locks.add(dirLocks[s]);
+		}
+		return locks;
+	}
+
+	private static int stripe(File dir)
+	{
+		return Math.floorMod(canonical(dir).getPath().hashCode(), DIR_LOCKS);
+	}
+
+	// files without the ones that are the same file as one before them
+	private static ArrayList<File> distinct(ArrayList<File> files)
+	{
+		HashSet<File> seen = new HashSet<File>();
+		ArrayList<File> kept = new ArrayList<File>();
+		for (File f : files)
+		{
+			if (seen.add(canonical(f)))
+				kept.add(f);
+		}
+		return kept;
+	}
+
+	// the same File for every way of naming it, or the absolute one if that can't be found
+	private static File canonical(File f)
+	{
+		try
+		{
+			return f.getCanonicalFile();
+		}
+		catch (IOException e)
+		{
+			return f.getAbsoluteFile();
+		}
+	}
+
+	// finish the files already started and stop the threads
+	public void shutdown() throws InterruptedException
+	{
+		requests.shutdown();
+		pool.shutdown();
+		pool.awaitTermination(1, TimeUnit.MINUTES);
+	}
+}
@@ -0,0 +1,22 @@
+package syntax_analyzer;
+
+// counters of everything analyzed since the JVM started, registered as syntax_analyzer:type=Analyzer
+// for jconsole, VisualVM or any other JMX client
+public interface AnalyzerMXBean
+{
+	long getFilesProcessed(); // files analyzed, including those the cache skipped
+
+	long getFilesCached(); // files the cache skipped
+
+	long getFilesFailed(); // files that couldn't be analyzed at all
+
+	long getTokensLexed();
+
+	long getSyntaxErrors();
+
+	long getBytesRead();
+
+	long getBytesWritten(); // bytes of the output files
+
+	int getQueueDepth(); // files waiting to be analyzed
+}
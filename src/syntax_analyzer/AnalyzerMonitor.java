@@ -0,0 +1,88 @@
+package syntax_analyzer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+// the counters behind AnalyzerMXBean, updated by JackAnalyzer from any number of threads
+public class AnalyzerMonitor implements AnalyzerMXBean
+{
+	public static final String NAME = "syntax_analyzer:type=Analyzer";
+
+	public final AtomicLong filesProcessed = new AtomicLong();
+	public final AtomicLong filesCached = new AtomicLong();
+	public final AtomicLong filesFailed = new AtomicLong();
+	public final AtomicLong tokensLexed = new AtomicLong();
+	public final AtomicLong syntaxErrors = new AtomicLong();
+	public final AtomicLong bytesRead = new AtomicLong();
+	public final AtomicLong bytesWritten = new AtomicLong();
+	public final AtomicInteger queueDepth = new AtomicInteger();
+
+	// a monitor registered with the platform MBean server, or only kept in memory if it can't be registered
+	public static AnalyzerMonitor register()
+	{
+		AnalyzerMonitor monitor = new AnalyzerMonitor();
+
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, new ObjectName(NAME));
+		}
+		catch (Exception e) // already registered by another class loader, or no JMX - the counters still work
+		{
+		}
+
+		return monitor;
+	}
+
+	// count a file that was analyzed, s holding its numbers
+	public void analyzed(FileStats s)
+	{
+		filesProcessed.incrementAndGet();
+		tokensLexed.addAndGet(s.tokens);
+		syntaxErrors.addAndGet(s.errors);
+		bytesRead.addAndGet(s.bytes);
+		bytesWritten.addAndGet(s.written);
+	}
+
+	public long getFilesProcessed()
+	{
+		return filesProcessed.get();
+	}
+
+	public long getFilesCached()
+	{
+		return filesCached.get();
+	}
+
+	public long getFilesFailed()
+	{
+		return filesFailed.get();
+	}
+
+	public long getTokensLexed()
+	{
+		return tokensLexed.get();
+	}
+
+	public long getSyntaxErrors()
+	{
+		return syntaxErrors.get();
+	}
+
+	public long getBytesRead()
+	{
+		return bytesRead.get();
+	}
+
+	public long getBytesWritten()
+	{
+		return bytesWritten.get();
+	}
+
+	public int getQueueDepth()
+	{
+		return queueDepth.get();
+	}
+}
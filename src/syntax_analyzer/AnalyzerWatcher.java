@@ -0,0 +1,151 @@
+package syntax_analyzer;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JackAnalyzer -watch : after the first run, analyze each .jack file again whenever it is saved
+// only the files that changed are analyzed and only their outputs written, on the JVM that is already warm
+public class AnalyzerWatcher
+{
+	public static int debounceMillis = 50; // events this close together are one save, editors often write a file in several steps
+
+	public WatchService watcher;
+	public HashMap<WatchKey, Path> dirs = new HashMap<WatchKey, Path>(); // directory each key watches
+	public HashSet<Path> wholeDirs = new HashSet<Path>(); // directories given, every .jack file in them is watched
+	public HashSet<Path> files = new HashSet<Path>(); // files given one by one, only they are watched in their directory
+
+	// watch the files and directories given on the command line, saves from now on are kept until run() takes them
+	public AnalyzerWatcher(List<String> filePaths) throws IOException
+	{
+		watcher = FileSystems.getDefault().newWatchService();
+
+		for (String filePath : filePaths)
+		{
+			Path path = Paths.get(filePath);
+
+			if (Files.isDirectory(path))
+			{
+				wholeDirs.add(path);
+				register(path);
+			}
+			else if (Files.isRegularFile(path))
+			{
+				files.add(path);
+				register(path.getParent() != null ? path.getParent() : Paths.get(""));
+			}
+		}
+	}
+
+	private void register(Path dir) throws IOException
+	{
+		if (dirs.containsValue(dir))
+			return;
+
+		WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		dirs.put(key, dir);
+	}
+
+	// true for the .jack files this watches, not for the XML files written next to them
+	public boolean watched(Path file)
+	{
+		if (!file.getFileName().toString().endsWith(".jack"))
+			return false;
+
+		Path dir = file.getParent() != null ? file.getParent() : Paths.get("");
+		return wholeDirs.contains(dir) || files.contains(file);
+	}
+
+	// wait for saves and analyze what they changed, until the process is stopped
+	public void run() throws IOException, InterruptedException
+	{
+		System.out.println("Watching for changes...");
+
+		while (true)
+		{
+			LinkedHashSet<Path> changed = new LinkedHashSet<Path>(); // in the order they were saved, each file once
+			boolean overflow = false;
+
+			// wait for the first event, then take the ones that follow until debounceMillis go by without one
+			WatchKey key = watcher.take();
+			while (key != null)
+			{
+				overflow |= collect(key, changed);
+				key = watcher.poll(debounceMillis, TimeUnit.MILLISECONDS);
+			}
+
+			if (overflow) // events were lost, analyze everything watched
+				changed.addAll(allWatched());
+
+			InternPool.renew(); // names of files saved long ago don't pile up
+			long start = System.nanoTime();
+			int analyzed = 0;
+
+			for (Path file : changed)
+			{
+				if (!Files.isRegularFile(file)) // deleted, or renamed away again
+					continue;
+
+				System.out.print(JackAnalyzer.analyze(file.toFile()));
+				analyzed++;
+			}
+
+			if (analyzed > 0)
+				System.out.printf("(%d changed, %.1f ms)%n", analyzed, (System.nanoTime() - start) / 1e6);
+			System.out.flush();
+		}
+	}
+
+	// add the watched files key has events for to changed, true if some events were lost
+	private boolean collect(WatchKey key, LinkedHashSet<Path> changed)
+	{
+		boolean overflow = false;
+		Path dir = dirs.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents())
+		{
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+			{
+				overflow = true;
+				continue;
+			}
+
+			Path file = dir.resolve((Path) event.context());
+			if (watched(file))
+				changed.add(file);
+		}
+
+		key.reset();
+		return overflow;
+	}
+
+	// every .jack file watched right now
+	private ArrayList<Path> allWatched() throws IOException
+	{
+		ArrayList<Path> all = new ArrayList<Path>(files);
+
+		for (Path dir : wholeDirs)
+		{
+			try (DirectoryStream<Path> children = Files.newDirectoryStream(dir, "*.jack"))
+			{
+				for (Path child : children)
+					all.add(child);
+			}
+		}
+
+		return all;
+	}
+}
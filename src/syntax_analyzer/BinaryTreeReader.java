@@ -0,0 +1,161 @@
+package syntax_analyzer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import util.NodeKind;
+
+// reads a file written by BinaryTreeWriter one node at a time, the way a StAX reader goes through XML
+//
+//   BinaryTreeReader r = new BinaryTreeReader(path);
+//   while (r.next())
+//       switch (r.event) { case START: ... r.kind ... case TOKEN: ... r.type, r.text, r.offset ... }
+//
+// START and END come in pairs around every rule node's children, skip() after a START jumps to its END
+public class BinaryTreeReader
+{
+	// events
+	public static final int START = 0; // a rule node begins, its children follow
+	public static final int END = 1; // the rule node started last and not ended yet ends
+	public static final int TOKEN = 2; // a token leaf
+	public static final int ERROR = 3; // an error leaf, text is its message
+
+	public String[] strings; // the string table
+
+	// the node just read
+	public int event;
+	public int kind; // NodeKind of the node
+	public int type; // TokenBuffer type code of a token leaf
+	public String text; // text of a token leaf, message of an error leaf
+	public int offset; // where the node's first token starts in the source
+
+	private byte[] data;
+	private int pos;
+
+	// rule nodes that are open
+	private int[] ends = new int[32]; // where the records of their children end
+	private int[] kinds = new int[32];
+	private int[] offsets = new int[32];
+	private int depth;
+
+	public BinaryTreeReader(Path path) throws IOException
+	{
+		this(Files.readAllBytes(path));
+	}
+
+	public BinaryTreeReader(byte[] bytes) throws IOException
+	{
+		data = bytes;
+
+		byte[] magic = BinaryTreeWriter.MAGIC;
+		if (data.length < magic.length + 1 || data[0] != magic[0] || data[1] != magic[1] || data[2] != magic[2])
+			throw new IOException("not a binary parse tree");
+		if (data[3] != BinaryTreeWriter.VERSION)
+			throw new IOException("binary parse tree version " + data[3] + ", this reads " + BinaryTreeWriter.VERSION);
+		pos = 4;
+
+		strings = new String[readVarint()];
+		for (int i = 0; i < strings.length; i++)
+		{
+			int length = readVarint();
+			strings[i] = new String(data, pos, length, StandardCharsets.UTF_8);
+			pos += length;
+		}
+	}
+
+	// read the next node, false at the end of the file
+	public boolean next() throws IOException
+	{
+		if (depth > 0 && pos == ends[depth - 1]) // the children of the open node are all read
+		{
+			depth--;
+			event = END;
+			kind = kinds[depth];
+			offset = offsets[depth];
+			text = null;
+			return true;
+		}
+
+		if (pos == data.length)
+			return false;
+
+		kind = data[pos++];
+
+		if (kind == NodeKind.TOKEN)
+		{
+			event = TOKEN;
+			type = data[pos++];
+			offset = parentOffset() + unzigzag(readVarint());
+			text = strings[readVarint()];
+		}
+		else if (kind == NodeKind.ERROR)
+		{
+			event = ERROR;
+			offset = parentOffset() + unzigzag(readVarint());
+			text = strings[readVarint()];
+		}
+		else
+		{
+			event = START;
+			offset = parentOffset() + unzigzag(readVarint());
+			text = null;
+
+			int children = readVarint();
+			if (depth == ends.length)
+			{
+				ends = Arrays.copyOf(ends, depth * 2);
+				kinds = Arrays.copyOf(kinds, depth * 2);
+				offsets = Arrays.copyOf(offsets, depth * 2);
+			}
+			ends[depth] = pos + children;
+			kinds[depth] = kind;
+			offsets[depth] = offset;
+			depth++;
+		}
+
+		if (pos > data.length || (depth > 0 && pos > ends[depth - 1]))
+			throw new IOException("binary parse tree is cut short");
+		return true;
+	}
+
+	// right after a START, pass over the node's children - the next event is its END
+	public void skip()
+	{
+		pos = ends[depth - 1];
+	}
+
+	// number of rule nodes open around the current position
+	public int depth()
+	{
+		return depth;
+	}
+
+	private int parentOffset()
+	{
+		return depth > 0 ? offsets[depth - 1] : 0;
+	}
+
+	private int readVarint() throws IOException
+	{
+		int n = 0;
+		for (int shift = 0; shift < 35; shift += 7)
+		{
+			if (pos >= data.length)
+				throw new IOException("binary parse tree is cut short");
+
+			int b = data[pos++];
+			n |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return n;
+		}
+		throw new IOException("bad varint in binary parse tree");
+	}
+
+	private static int unzigzag(int n)
+	{
+		return (n >>> 1) ^ -(n & 1);
+	}
+}
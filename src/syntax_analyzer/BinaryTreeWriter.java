@@ -0,0 +1,221 @@
+package syntax_analyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import util.NodeKind;
+
+// writes a ParseTree in the compact binary format read by BinaryTreeReader, the -binary *Completed.bin files
+//
+//   "JPT" 1                        magic and format version
+//   varint n, n strings            string table, each a varint byte length and UTF-8 bytes
+//   node records                   the nodes in document order, the top level ones one after the other
+//
+// a rule node is   kind, varint offset, varint length of its children's records, the children's records
+// a token leaf is  TOKEN, type, varint offset, varint string number of its text
+// an error leaf is ERROR, varint offset, varint string number of its message
+// kind and type are one byte (NodeKind, TokenBuffer type code), offset is where the node's first token starts
+// in the source, zigzag encoded as the difference from its parent's offset - so a reader can skip any
+// rule node's children without losing track, and nearby tokens take one or two bytes
+// every text is written once in the string table, the leaves only hold its number
+public class BinaryTreeWriter
+{
+	public static final byte[] MAGIC = { 'J', 'P', 'T' };
+	public static final int VERSION = 1;
+
+	private ParseTree tree;
+	private LineCounter lines; // positions of the errors, for their messages
+
+	private int[] offset; // source offset of each node
+	private int[] string; // string number of each leaf
+	private int[] length; // bytes of the whole record of each node, children included
+	private int[] parent; // parent of each node, -1 at the top level
+
+	private HashMap<String, Integer> numbers = new HashMap<String, Integer>(); // string table, text -> number
+	private ByteArrayOutputStream table = new ByteArrayOutputStream();
+
+	public BinaryTreeWriter(ParseTree t)
+	{
+		tree = t;
+	}
+
+	// write the tree to out, which is not closed
+	public void write(OutputStream out) throws IOException
+	{
+		int size = tree.size;
+		offset = new int[size];
+		string = new int[size];
+		length = new int[size];
+		parent = new int[size];
+
+		// parents, from the sibling links - node numbers are already in document order
+		for (int node = 0; node < size; node++)
+			parent[node] = -1;
+		for (int node = 0; node < size; node++)
+		{
+			for (int child = tree.firstChild[node]; child >= 0; child = tree.nextSibling[child])
+				parent[child] = node;
+		}
+
+		// leaves: offsets and strings, numbered in the order they are first used
+		for (int node = 0; node < size; node++)
+		{
+			offset[node] = -1;
+
+			if (tree.kind[node] == NodeKind.TOKEN)
+			{
+				offset[node] = tokenOffset(tree.base + tree.token[node]);
+				string[node] = number(tree.text(node));
+			}
+			else if (tree.kind[node] == NodeKind.ERROR)
+			{
+				offset[node] = tokenOffset(tree.base + tree.token[node]);
+				string[node] = number(errorMessage(node));
+			}
+		}
+
+		// rule nodes start where their first token does, children come after their parent so go backwards
+		for (int node = size - 1; node >= 0; node--)
+		{
+			if (isRule(node))
+			{
+				for (int child = tree.firstChild[node]; child >= 0 && offset[node] < 0; child = tree.nextSibling[child])
+					offset[node] = offset[child];
+			}
+		}
+
+		// a node without any token, an empty parameterList say, starts where its parent does
+		for (int node = 0; node < size; node++)
+		{
+			if (offset[node] < 0)
+				offset[node] = parent[node] < 0 ? 0 : offset[parent[node]];
+		}
+
+		// record lengths, backwards again so every child is measured before its parent
+		for (int node = size - 1; node >= 0; node--)
+		{
+			int bytes = 1 + varintLength(zigzag(offset[node] - parentOffset(node)));
+
+			if (isRule(node))
+			{
+				int children = childrenLength(node);
+				bytes += varintLength(children) + children;
+			}
+			else
+			{
+				bytes += varintLength(string[node]) + (tree.kind[node] == NodeKind.TOKEN ? 1 : 0);
+			}
+
+			length[node] = bytes;
+		}
+
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		for (int node = 0; node < size; node++)
+		{
+			records.write(tree.kind[node]);
+
+			if (tree.kind[node] == NodeKind.TOKEN)
+				records.write(tree.tokenType[node]);
+
+			writeVarint(records, zigzag(offset[node] - parentOffset(node)));
+
+			if (isRule(node))
+				writeVarint(records, childrenLength(node));
+			else
+				writeVarint(records, string[node]);
+		}
+
+		ByteArrayOutputStream head = new ByteArrayOutputStream();
+		head.write(MAGIC, 0, MAGIC.length);
+		head.write(VERSION);
+		writeVarint(head, numbers.size());
+
+		head.writeTo(out);
+		table.writeTo(out);
+		records.writeTo(out);
+	}
+
+	private boolean isRule(int node)
+	{
+		return tree.kind[node] != NodeKind.TOKEN && tree.kind[node] != NodeKind.ERROR;
+	}
+
+	private int parentOffset(int node)
+	{
+		return parent[node] < 0 ? 0 : offset[parent[node]];
+	}
+
+	private int childrenLength(int node)
+	{
+		int bytes = 0;
+		for (int child = tree.firstChild[node]; child >= 0; child = tree.nextSibling[child])
+			bytes += length[child];
+		return bytes;
+	}
+
+	// where token number index starts in the source, the end of the source past the last token
+	private int tokenOffset(int index)
+	{
+		if (index < 0)
+			return 0;
+		if (index >= tree.tokens.size)
+			return tree.tokens.source.length();
+		return tree.tokens.start[index];
+	}
+
+	// the message of an error leaf, as XmlTreeWriter writes it
+	private String errorMessage(int node)
+	{
+		if (lines == null)
+			lines = new LineCounter(tree.tokens.source);
+
+		int index = tree.base + tree.token[node];
+		return new Diagnostic(tree.tokens, index < tree.tokens.size ? index : -1, lines, tree.text(node)).toString();
+	}
+
+	// number of s in the string table, adding it the first time
+	private int number(String s)
+	{
+		Integer n = numbers.get(s);
+		if (n != null)
+			return n;
+
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarint(table, bytes.length);
+		table.write(bytes, 0, bytes.length);
+
+		numbers.put(s, numbers.size());
+		return numbers.size() - 1;
+	}
+
+	// small numbers of either sign as small unsigned ones: 0, -1, 1, -2, 2... -> 0, 1, 2, 3, 4...
+	public static int zigzag(int n)
+	{
+		return (n << 1) ^ (n >> 31);
+	}
+
+	// unsigned n in 7 bit groups, low group first, the top bit set on all but the last
+	public static void writeVarint(ByteArrayOutputStream out, int n)
+	{
+		while ((n & ~0x7F) != 0)
+		{
+			out.write((n & 0x7F) | 0x80);
+			n >>>= 7;
+		}
+		out.write(n);
+	}
+
+	public static int varintLength(int n)
+	{
+		int bytes = 1;
+		while ((n & ~0x7F) != 0)
+		{
+			n >>>= 7;
+			bytes++;
+		}
+		return bytes;
+	}
+}
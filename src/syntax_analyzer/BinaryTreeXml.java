@@ -0,0 +1,54 @@
+package syntax_analyzer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// converts a -binary *Completed.bin file back to the *Completed.xml the analyzer writes for the same source
+//   java syntax_analyzer.BinaryTreeXml file.bin [file.xml]
+// without a second argument the XML goes next to the input, .bin replaced by .xml
+public class BinaryTreeXml
+{
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			System.out.println("usage: java syntax_analyzer.BinaryTreeXml file.bin [file.xml]");
+			return;
+		}
+
+		String out = args.length > 1 ? args[1] : args[0].replaceAll("\\.bin$", "") + ".xml";
+		convert(new BinaryTreeReader(new File(args[0]).toPath()), new FileOutputStream(out));
+	}
+
+	// write every node r reads to out as XML, then close out
+	public static void convert(BinaryTreeReader r, OutputStream out) throws IOException
+	{
+		XmlWriter xml = new XmlWriter(out);
+
+		while (r.next())
+		{
+			switch (r.event)
+			{
+				case BinaryTreeReader.START:
+					xml.startNode(r.kind);
+					break;
+
+				case BinaryTreeReader.END:
+					xml.endNode(r.kind);
+					break;
+
+				case BinaryTreeReader.TOKEN:
+					xml.token(r.type, r.text);
+					break;
+
+				case BinaryTreeReader.ERROR:
+					xml.error(r.text);
+					break;
+			}
+		}
+
+		xml.close();
+	}
+}
@@ -0,0 +1,168 @@
+package syntax_analyzer;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// byte output for the XML writers: everything goes into a direct buffer that is written to the file's channel
+// a whole buffer at a time, so a file takes a handful of writes instead of one per line
+// the tags are written as byte arrays made once, only the token text is copied in character by character
+// - ASCII straight into the buffer, and a string with anything else encoded with the platform charset, as PrintWriter did
+public class ByteOutput
+{
+	public static final int BUFFER_SIZE = 64 * 1024;
+	public static final byte[] NEWLINE = bytes(System.lineSeparator()); // what println ends a line with
+
+	// buffers of the outputs closed so far, the next ones take them instead of allocating their own
+	private static final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+
+	public ByteOutput(OutputStream o)
+	{
+		this(o instanceof FileOutputStream ? ((FileOutputStream) o).getChannel() : Channels.newChannel(o));
+	}
+
+	public ByteOutput(WritableByteChannel c)
+	{
+		channel = c;
+
+		buffer = free.poll();
+		if (buffer == null)
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	// the bytes of a tag or other ASCII text, for the tables the writers keep
+	public static byte[] bytes(String s)
+	{
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	public void write(byte[] b)
+	{
+		if (b.length > buffer.remaining())
+		{
+			drain();
+
+			if (b.length > buffer.remaining()) // bigger than the whole buffer, write it as it is
+			{
+				writeFully(ByteBuffer.wrap(b));
+				return;
+			}
+		}
+
+		buffer.put(b);
+	}
+
+	public void write(String s)
+	{
+		write(s, null);
+	}
+
+	// write s, with each character c that has escapes[c] written as those bytes instead, escapes may be null
+	public void write(String s, byte[][] escapes)
+	{
+		int length = s.length();
+
+		for (int i = 0; i < length; i++)
+		{
+			if (s.charAt(i) >= 0x80) // not ASCII, leave it to the charset
+			{
+				writeEncoded(s, escapes);
+				return;
+			}
+		}
+
+		for (int i = 0; i < length; i++)
+		{
+			char c = s.charAt(i);
+
+			if (escapes != null && escapes[c] != null)
+			{
+				write(escapes[c]);
+				continue;
+			}
+
+			if (!buffer.hasRemaining())
+				drain();
+			buffer.put((byte) c);
+		}
+	}
+
+	// the slow way, for text that isn't all ASCII
+	private void writeEncoded(String s, byte[][] escapes)
+	{
+		if (escapes != null)
+		{
+			StringBuilder escaped = new StringBuilder(s.length() + 16);
+			for (int i = 0; i < s.length(); i++)
+			{
+				char c = s.charAt(i);
+				if (c < 0x80 && escapes[c] != null)
+					escaped.append(new String(escapes[c], StandardCharsets.US_ASCII));
+				else
+					escaped.append(c);
+			}
+			s = escaped.toString();
+		}
+
+		write(s.getBytes(Charset.defaultCharset()));
+	}
+
+	// write out what is in the buffer
+	public void flush()
+	{
+		drain();
+	}
+
+	// write out what is left and close the channel, the buffer goes back for the next output
+	public void close()
+	{
+		if (buffer == null) // already closed
+			return;
+
+		try
+		{
+			drain();
+			channel.close();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		finally
+		{
+			buffer.clear();
+			free.add(buffer);
+			buffer = null;
+		}
+	}
+
+	private void drain()
+	{
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer b)
+	{
+		try
+		{
+			while (b.hasRemaining())
+				channel.write(b);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+}
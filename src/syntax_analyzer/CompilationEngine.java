@@ -1,787 +1,759 @@
 package syntax_analyzer;
 
 import java.io.FileOutputStream; 
-import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import util.Keyword;
+import util.NodeKind;
+import util.Symbol;
 import util.TokenType;
 
 public class CompilationEngine 
 {
-	public PrintWriter out;
-	public PrintWriter outTokens;
+	public XmlWriter xml; // parse tree output file, if there is one
+	public ParseListener listener; // gets every node, token and error as it is parsed - xml, a ParseTree, or any other consumer
 	public JackTokenizer tokenizer;
+	public ArrayList<Diagnostic> diagnostics = new ArrayList<Diagnostic>(); // every syntax error found, in order, null to not keep them
+
+	private int[] open = new int[32]; // NodeKind of each node started and not yet ended
+	private int depth;
+	private LineCounter lines; // positions for diagnostics
+	// token the last error was at, enclosing constructs giving up there don't report it again, and what it expected
+	// IncrementalAnalyzer sets them before the closing '}' when the member before it wasn't parsed again
+	int lastError = -1;
+	String lastExpected;
+	private boolean atClassEnd; // parsing the closing '}', lastError is the last member's: only the very same error isn't reported again
+
+	public static final int MAX_INT = 32767; // largest integer constant Jack has
+
+	// thrown at a syntax error, the construct it is in is given up and parsing goes on where a catch resynchronizes
+	public static class SyntaxError extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		public SyntaxError()
+		{
+			super(null, null, false, false); // no stack trace, it is only used to unwind
+		}
+	}
 	
+	// engine that writes nothing, for parsing into a ParseTree only
+	public CompilationEngine(JackTokenizer t)
+	{
+		tokenizer = t;
+	}
+
+	// engine that tells l about the parse, and writes nothing itself
+	public CompilationEngine(JackTokenizer t, ParseListener l)
+	{
+		tokenizer = t;
+		listener = l;
+	}
+
 	//constructor for the CompilationEngine object
+	// o gets the parse tree and ot the tokens, either may be null to leave that file out
+	// the tokens are written as the parser reaches them, so both files are made in one pass over the tokens
 	public CompilationEngine(JackTokenizer t, FileOutputStream o, FileOutputStream ot) 
 	{
 		tokenizer = t; 
-		out = new PrintWriter(o); // create print writer object for output file 
-		outTokens = new PrintWriter(ot); 
 
-		// Generate tokens file
-		outTokens.println("<tokens>"); //start tokens tag
-		while (tokenizer.hasMoreTokens()) //while there are more tokens
+		if (o != null)
 		{
-			tokenizer.advance();//advance to the next token
-
-			String value;
-
-			switch (tokenizer.tokenType()) 
-			{
-			    // if token is a keyword , get keyword value
-				case TokenType.KEYWORD: 
-					value = tokenizer.keyword();
-					break;
-					
-				// if token is a symbol , get symbol value
-				case TokenType.SYMBOL: 
-					value = String.valueOf(tokenizer.symbol());
-					break;
-					
-				// if token is an identifier , get identifier value
-				case TokenType.IDENTIFIER:
-					value = tokenizer.identifier();
-					break;
-					
-				// if token is an integer constant , get integer constant value
-				case TokenType.INT_CONST:
-					value = String.valueOf(tokenizer.intVal());	
-					break;
-					
-				// if token is a string constant , get string constant value
-				case TokenType.STRING_CONST: 
-					value = tokenizer.stringVal();
-				default:
-					value = "";
-			}
-			
-			// print token to tokens file 
-			outTokens.println("\t<" + tokenizer.tokenType() + "> " + value + " </" + tokenizer.tokenType() + ">"); 	
+			xml = new XmlWriter(o); // writes the output file through its channel
+			listener = xml;
 		}
 
-		outTokens.println("</tokens>\n"); // end tokens tag
-		outTokens.flush(); 	
-		outTokens.close();	
-		
-		//reset tokenizer to beginning of file
-		tokenizer.reset();	
+		if (ot != null)
+		{
+			tokenizer.writeTokens(ot);
+		}
 	}
-	// write error to output file
-	public String writeError(String parameter) 	
+
+	// write the tokens the parser didn't reach and close the tokens file, if there is one
+	public void finishTokens()
 	{
-		//return error message
-		return "ERROR occured!";
+		tokenizer.finishTokens();
 	}
 
-	// check if next token is of type and value
-	public boolean nextIs(String tokenType, String tokenValue) 
+	// write an error where the next token is and keep it as a diagnostic, expected is what the grammar needed there
+	public void writeError(String expected) 	
 	{
+		int index = tokenizer.peek(1);
 
-		String token;
-		String type = tokenizer.tokenType(); // get token type
-		switch (tokenType) 
-		{
-		    // if token is a keyword
-			case TokenType.KEYWORD: 
-				if (!type.equals(TokenType.KEYWORD)) // if token type is not keyword
-				{
-					return false;
-				}
+		if (index == lastError && (!atClassEnd || expected.equals(lastExpected))) // already reported here
+			return;
+		lastError = index;
+		lastExpected = expected;
+		atClassEnd = false;
 
-				if (tokenValue.isEmpty() && tokenType.equals(type)) // if token value is empty and token type is keyword
-				{
-					return true;
-				}
+		if (listener == null && diagnostics == null)
+			return;
 
-				token = tokenizer.keyword(); // get keyword value from tokenizer
-				if (!token.isEmpty() && !token.equals(tokenValue)) // if token value is not empty and token value is not equal to keyword value
-				
-				{
-					return false;
-				}
-
-				return true;
+		if (lines == null || lines.source != tokenizer.tokens.source)
+			lines = new LineCounter(tokenizer.tokens.source);
 
-			// if token is a symbol
-			case TokenType.SYMBOL: 
-
-				if (!type.equals(TokenType.SYMBOL)) // if token type is not symbol
-				
-				{
-					return false;
-				}
+		Diagnostic d = new Diagnostic(tokenizer.tokens, tokenizer.has(index) ? tokenizer.slot(index) : -1, lines, expected);
 
-				token = tokenizer.symbol(); // get symbol value from tokenizer
-				if (!tokenValue.isEmpty() && !token.equals(tokenValue)) // if token value is not empty and token value is not equal to symbol value
-				{
-					return false;
-				}
+		if (listener != null)
+			listener.error(index, d);
+		if (diagnostics != null)
+			diagnostics.add(d);
+	}
 
-				return true;
+	// write the error and give up on the construct being parsed
+	public void syntaxError(String expected)
+	{
+		writeError(expected);
+		throw new SyntaxError();
+	}
 
-			// if token is an identifier
-			case TokenType.IDENTIFIER: 	
-				if (type.equals(TokenType.IDENTIFIER)) 	// if token type is identifier
-				{
-					return true;
-				}
+	// end the nodes a construct given up on left open, down to depth
+	public void recover(int depth)
+	{
+		while (this.depth > depth)
+			endNode(open[this.depth - 1]);
+	}
 
-				else
-					return false;
+	// skip tokens up to the next classVarDec or subroutineDec, or the '}' that ends the file
+	public void skipToMember()
+	{
+		while (tokenizer.hasMoreTokens() && !nextIsClassVarDec() && !nextIsSubroutine()
+				&& !(nextIs(Symbol.RBRACE) && !tokenizer.has(tokenizer.peek(2))))
+			tokenizer.consume();
+	}
 
-			// if token is a string constant
-			case TokenType.STRING_CONST: 	
-				if (type.equals(TokenType.STRING_CONST)) // if token type is string constant
-				{
-					return true;
-				}
+	// skip tokens up to just after the next ';', or up to the next statement, '}' or member
+	// a block { ... } skipped over is skipped whole, only a member keyword stops the skip inside it
+	public void skipStatement()
+	{
+		int blocks = 0; // blocks entered while skipping
 
-				return false;
+		while (tokenizer.hasMoreTokens() && !nextIsClassVarDec() && !nextIsSubroutine())
+		{
+			if (blocks == 0 && (nextIs(Symbol.RBRACE) || nextIsStatement()))
+				return;
 
-			// if token is an integer constant
-			case TokenType.INT_CONST: 	
-				if (type.equals(TokenType.INT_CONST)) // if token type is integer constant
-				 {
-					return true;
-				}
+			tokenizer.consume();
 
-				return false;
+			if (is(Symbol.LBRACE))
+				blocks++;
+			else if (is(Symbol.RBRACE))
+				blocks--;
 
-			default:
-				return false;
+			if (blocks == 0 && (is(Symbol.SEMICOLON) || is(Symbol.RBRACE)))
+				return;
 		}
-
 	}
-	/**
-	 'class' className 
-	 '{'
-	    classVarDec*
-	    subroutineDec*
-	  '}'
-	 */
-	
-	public void compileClass() 		
+
+	// start a node of the given NodeKind
+	public void startNode(int kind)
 	{
-		String output = "";
+		if (depth == open.length)
+			open = Arrays.copyOf(open, depth * 2);
+		open[depth++] = kind;
 
-		// KEYWORD::class
-		tokenizer.advance();
-		// if next token is not class
-		if (!nextIs(TokenType.KEYWORD, Keyword.CLASS)) 
-		{
-			output += writeError("CLASS"); // write error to output file
-		}
-		output += "<class>\n"; // write class tag to output file
-		output += "<keyword> " + tokenizer.keyword() + " </keyword>\n"; // write class keyword to output file 	
+		if (listener != null)
+			listener.startNode(kind);
+	}
 
-		// IDENTIFIER::classname
-		tokenizer.advance();
-		if (!nextIs(TokenType.IDENTIFIER, "")) // if next token is not identifier
-		{
-			output += writeError("IDENTIFIER"); // write error to output file
-		}
-		output += "<identifier> " + tokenizer.identifier() + " </identifier>\n"; // write class name to output file
+	// end the current node
+	public void endNode(int kind)
+	{
+		if (depth > 0) // the part IncrementalAnalyzer parses last ends the class node it didn't start
+			depth--;
 
-		// SYMBOL::{
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, "{"))	// if next token is not { 		
-		{
-			output += writeError("SYMBOL"); // write error to output file
-		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write { to output file
+		if (listener != null)
+			listener.endNode(kind);
+	}
 
-		// classVarDec*
-		output += compileClassVarDec(); // compile classVarDec	
+	// write the current token as type with text value
+	public void writeToken(TokenType type, String value)
+	{
+		writeToken(tokenizer.tokenIndex(), type, value);
+	}
 
-		// subroutineDec*
-		output += compileSubroutine(); // compile subroutineDec
+	// write token number index as type with text value
+	public void writeToken(int index, TokenType type, String value)
+	{
+		if (listener != null)
+			listener.token(index, type, value);
+	}
 
-		// SYMBOL::}
-		tokenizer.advance();	// advance tokenizer to next token
-		if (!nextIs(TokenType.SYMBOL, "}")) // if next token is not }
-		{
-			output += writeError("SYMBOL");// write error to output file
-		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n"; // write } to output file
+	// parse the class into a ParseTree instead of writing XML
+	public ParseTree compileClassTree()
+	{
+		ParseListener direct = listener;
+		ParseTree built = new ParseTree(tokenizer.tokens);
 
-		output += "</class>"; // write class end tag to output file
+		listener = built; // nothing is written while the tree is built
+		compileClass();
 
-		out.println(output); // write output to output file
-		out.flush();
-		out.close();
+		listener = direct;
+		return built;
 	}
 
-	// ('static'|'field') type varName (',' varName)* ';'
-	public String compileClassVarDec() 	
-	 {
-		String output = "";
-
-		tokenizer.advance();
-		// while next token is static or field 
-		while (nextIs(TokenType.KEYWORD, Keyword.STATIC) || nextIs(TokenType.KEYWORD, Keyword.FIELD)) 
-		{
-			output += "<classVarDec>\n"; 	// write classVarDec tag to output file
-			output += "<keyword> " + tokenizer.keyword() + " </keyword>\n"; // write static or field keyword to output file
-			output += compileVarDec(); 
-			output += "</classVarDec>\n"; // write classVarDec end tag to output file
-			tokenizer.advance(); // advance tokenizer to next token
-		}
-		tokenizer.previousToken(); // return tokenizer to previous token
-		return output;	
+	// write the XML output file from a tree made by compileClassTree
+	public void writeXml(ParseTree t)
+	{
+		t.accept(new XmlTreeWriter(xml));
+		xml.close();
 	}
 
-	
-	// ('constructor'|'function'|'method') ('void' | type) subroutineName '(' parameterList ')' subroutineBody
-	public String compileSubroutine() 
+	// true if the current token is of type t
+	public boolean is(TokenType t)
 	{
-		String output = "";
-
-		tokenizer.advance();
-		
-		// while next token is constructor, function, or method
-		while (nextIs(TokenType.KEYWORD, Keyword.CONSTRUCTOR) || nextIs(TokenType.KEYWORD, Keyword.FUNCTION) || nextIs(TokenType.KEYWORD,Keyword.METHOD)) 	
-		 {
-			output += "<subroutineDec> \n" + "<keyword> " + tokenizer.keyword() + " </keyword>\n"; 	// write subroutineDec tag to output file
-
-			tokenizer.advance();
-			
-			// if next token is void, int, char, or boolean
-			if (nextIs(TokenType.KEYWORD, Keyword.VOID) || nextIs(TokenType.KEYWORD, Keyword.INT) || nextIs(TokenType.KEYWORD, Keyword.CHAR) || nextIs(TokenType.KEYWORD, Keyword.BOOLEAN)) 
-			{
-				output += "<keyword> " + tokenizer.keyword() + " </keyword>\n"; // write void, int, char, or boolean keyword to output file
-
-			}
-			 else if (nextIs(TokenType.IDENTIFIER, "")) // if next token is identifier could be a classname
-			{
-				output += "<identifier> " + tokenizer.identifier() + " </identifier>\n"; // write identifier to output file
-			} 
-			else
-			{
-				output += writeError("KEYWORD' || 'IDENTIFIER"); // write error to output file
-			}
+		return tokenizer.typeCode() == t.ordinal();
+	}
 
-			tokenizer.advance();
-			if (!nextIs(TokenType.IDENTIFIER, "")) 	// if next token is not identifier
-	
-			{
-				output += writeError("IDENTIFIER"); 	// write error to output file
-			}
-			
-			output += "<identifier> " + tokenizer.identifier() + " </identifier>\n"; // write subroutine name to output file
+	// true if the current token is keyword k - compares the code the lexer stored with the ordinal
+	public boolean is(Keyword k)
+	{
+		return tokenizer.keywordCode() == k.ordinal();
+	}
 
-			tokenizer.advance();
-			if (!nextIs(TokenType.SYMBOL, "(")) // if next token is not (
-			{
-				output += writeError("SYMBOL");	// write error to output file
-			}
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n"; // write ( to output file
+	// true if the current token is symbol s
+	public boolean is(Symbol s)
+	{
+		return tokenizer.symbolCode() == s.ordinal();
+	}
 
-			output += "<parameterList>\n"; 	// write parameterList tag to output file
-			output += compileParameterList();	
-			output += "</parameterList>\n";	// write parameterList end tag to output file
+	// true if the token after the current one is of type t, the tokenizer doesn't move
+	public boolean nextIs(TokenType t)
+	{
+		return tokenizer.typeCode(tokenizer.peek(1)) == t.ordinal();
+	}
 
-			tokenizer.advance();
+	// true if the token after the current one is keyword k
+	public boolean nextIs(Keyword k)
+	{
+		return tokenizer.keywordCode(tokenizer.peek(1)) == k.ordinal();
+	}
 
-			if (!nextIs(TokenType.SYMBOL, ")")) // if next token is not )
-			 {
-				output += writeError("SYMBOL"); // write error to output file
-			}
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n" + "<subroutineBody>\n"; // write ) to output file
+	// true if the token after the current one is symbol s
+	public boolean nextIs(Symbol s)
+	{
+		return tokenizer.symbolCode(tokenizer.peek(1)) == s.ordinal();
+	}
 
-			// Subroutine body
-			tokenizer.advance();
-			
-			if (!nextIs(TokenType.SYMBOL, "{")) // if next token is not {
-			{
-				output += writeError("SYMBOL"); 
-			}
-			output += "<symbol> { </symbol>\n";	// write { to output file
+	// consume the next token and write it if it is keyword k, otherwise it is a syntax error
+	public void expect(Keyword k)
+	{
+		if (!nextIs(k))
+			syntaxError("'" + k.word + "'");
 
-			tokenizer.advance();
-			
-			//for variable declarations eg: var char x;
-			while (nextIs(TokenType.KEYWORD, Keyword.VAR))// while next token is var
-			 {
-				output += "<varDec>\n";	// write varDec tag to output file
-				output += "<keyword> var </keyword>\n";	// write var keyword to output file
+		tokenizer.consume();
+		writeToken(TokenType.KEYWORD, tokenizer.keyword());
+	}
 
-				output += compileVarDec();	
+	// consume the next token and write it if it is symbol s, otherwise it is a syntax error
+	public void expect(Symbol s)
+	{
+		if (!nextIs(s))
+			syntaxError("'" + s.text + "'");
 
-				output += "</varDec>\n";
+		tokenizer.consume();
+		writeToken(TokenType.SYMBOL, tokenizer.symbol());
+	}
 
-				tokenizer.advance();
-			}
-			tokenizer.previousToken();	// return tokenizer to previous token
+	// consume the next token and write it if it is an identifier, otherwise it is a syntax error
+	public void expectIdentifier()
+	{
+		if (!nextIs(TokenType.IDENTIFIER))
+			syntaxError("identifier");
 
-			output += compileStatements(); 	// compile statements
+		tokenizer.consume();
+		writeToken(TokenType.IDENTIFIER, tokenizer.identifier());
+	}
 
-			tokenizer.advance();
-			if (!nextIs(TokenType.SYMBOL, "}")) // if next token is not }
-			{
-				output += writeError("SYMBOL");
-			}
-			output += "<symbol> } </symbol>\n" + "</subroutineBody>\n" + "</subroutineDec>\n"; // write } to output file
+	// consume the next token and write it if it is a type, otherwise it is a syntax error
+	public void expectType()
+	{
+		if (!nextIsType())
+			syntaxError("type");
 
-			tokenizer.advance();
-		}
+		tokenizer.consume();
 
-		return output;
+		if (is(TokenType.KEYWORD)) // void, int, char or boolean
+			writeToken(TokenType.KEYWORD, tokenizer.keyword());
+		else // a class name
+			writeToken(TokenType.IDENTIFIER, tokenizer.identifier());
 	}
-	
-	
-    //((type varName) (',' type varName)*)?
-	public String compileParameterList()  
-	{
-		String output = "";
 
-		tokenizer.advance();
-		
-		// if next token is void, int, char, or boolean
-		if (nextIs(TokenType.KEYWORD, Keyword.VOID) || nextIs(TokenType.KEYWORD, Keyword.INT) || nextIs(TokenType.KEYWORD, Keyword.CHAR) || nextIs(TokenType.KEYWORD, Keyword.BOOLEAN)) 	
-		{
-			// write void, int, char, or boolean keyword to output file
-			output += "<keyword> " + tokenizer.keyword() + " </keyword> \n"; 
-		} 
-		else if (nextIs(TokenType.IDENTIFIER, "")) // if next token is identifier
-		{
-			output += "<identifier> " + tokenizer.identifier() + " </identifier> \n"; // write identifier to output file
-		} 
-		else
+	// check if next token is of type and value, with both given as text ("" value for any token of the type)
+	// it peeks like the other nextIs, the parser itself uses those, this is kept for callers that only have the strings
+	public boolean nextIs(String tokenType, String tokenValue) 
+	{
+		TokenType type = TokenType.of(tokenType);
+		if (type == null || !nextIs(type)) // if token type is not the one asked for
 		{
-			tokenizer.previousToken();	// return tokenizer to previous token
-			return "";
+			return false;
 		}
 
-		tokenizer.advance();
-		
-		if (!nextIs(TokenType.IDENTIFIER, "")) // if next token is not identifier
+		if (tokenValue.isEmpty()) // any token of the type
 		{
-			output += writeError("IDENTIFIER"); // write error to output file
-			return "";
+			return true;
 		}
-		
-		output += "<identifier> " + tokenizer.identifier() + " </identifier>\n";	// write parameter name to output file
 
-		tokenizer.advance();
-		
-		if (nextIs(TokenType.SYMBOL, ",")) 	// if next token is ,
-		{
-			output += "<symbol> , </symbol>\n"; // write , to output file
-			 output += compileParameterList(); 
-		}
-		else 
+		switch (type) 
 		{
-			tokenizer.previousToken();
+			case KEYWORD: 
+				return tokenizer.keywordCode(tokenizer.peek(1)) == Keyword.code(tokenValue);
+
+			case SYMBOL: 
+				return Symbol.of(tokenValue) != null && nextIs(Symbol.of(tokenValue));
+
+			default:
+				return true;
 		}
-		return output;
 	}
 
-	// 'var' type varName (',' varName)* ';'
-	public String compileVarDec() 
+	/**
+	 'class' className 
+	 '{'
+	    classVarDec*
+	    subroutineDec*
+	  '}'
+	 */
+	
+	public void compileClass() 		
 	{
-		String output = "";
+		compileClassStart(); // 'class' className '{'
 
-		tokenizer.advance();
+		// classVarDec*
+		compileClassVarDec(); // compile classVarDec	
 
-		// if next token is void, int, char, or boolean
-		if (nextIs(TokenType.KEYWORD, Keyword.VOID) || nextIs(TokenType.KEYWORD, Keyword.INT) || nextIs(TokenType.KEYWORD, Keyword.CHAR) || nextIs(TokenType.KEYWORD, Keyword.BOOLEAN)) 	
-		{
-			// write void, int, char, or boolean keyword to output file
-			output += "<keyword> " + tokenizer.keyword() + " </keyword> \n"; 
+		// subroutineDec*
+		compileSubroutine(); // compile subroutineDec
 
-		}
-		else if (nextIs(TokenType.IDENTIFIER, "")) // if next token is identifier
+		compileClassEnd(); // '}'
+	}
+
+	// 'class' className '{' , leaves the class node open
+	public void compileClassStart()
+	{
+		lastError = -1; // errors are only merged within the header, each member and the end, so each can be parsed on its own
+		startNode(NodeKind.CLASS); // write class tag to output file
+		int depth = this.depth;
+
+		try
 		{
-			output += "<identifier> " + tokenizer.identifier() + " </identifier> \n";// write identifier to output file
-		} 
-		 else 
+			expect(Keyword.CLASS); // KEYWORD::class
+			expectIdentifier(); // IDENTIFIER::classname
+			expect(Symbol.LBRACE); // SYMBOL::{
+		}
+		catch (SyntaxError e) // carry on with the first member
 		{
-			output += writeError("KEYWORD' || 'IDENTIFIER"); // write error to output file
+			recover(depth);
+			skipToMember();
 		}
+	}
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.IDENTIFIER, ""))// if next token is not identifier
-		 {
-			output += writeError("IDENTIFIER");	// write error to output file
-			
-		}
-		output += "<identifier> " + tokenizer.identifier() + " </identifier>\n";// write var name to output file
+	// '}' , closes the class node and the output file
+	public void compileClassEnd()
+	{
+		atClassEnd = true; // the file ending inside the last member is reported by the member, not once more here
 
-		tokenizer.advance();
-		while (nextIs(TokenType.SYMBOL, ",")) // while next token is ,
+		// a member out of place, or tokens that start none, are reported and skipped, and the members after them still parsed
+		while (!nextIs(Symbol.RBRACE) && tokenizer.hasMoreTokens())
 		{
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write , to output file
+			writeError("'constructor', 'function', 'method' or '}'");
 
-			tokenizer.advance();
-			if (!nextIs(TokenType.IDENTIFIER, "")) 	// if next token is not identifier
+			if (!nextIsClassVarDec())
 			{
-				output += writeError("IDENTIFIER");	// write error to output file
-				
+				tokenizer.consume();
+				skipToMember();
 			}
 
-			output += "<identifier> " + tokenizer.identifier() + " </identifier>\n";// write var name to output file
-			tokenizer.advance();// advance tokenizer to next token
+			compileClassVarDec();
+			compileSubroutine();
+		}
 
+		// SYMBOL::}
+		if (nextIs(Symbol.RBRACE))
+		{
+			tokenizer.consume();
+			writeToken(TokenType.SYMBOL, tokenizer.symbol()); // write } to output file
+		}
+		else // the file ended first
+		{
+			writeError("'}'");
 		}
 
-		if (!nextIs(TokenType.SYMBOL, ";")) // if next token is not ;
+		if (tokenizer.hasMoreTokens()) // a '}' too many, or anything else after the class
 		{
-			output += writeError("SYMBOL"); // write error to output file
-			// return;
+			writeError("end of file");
 		}
-		output += "<symbol> ; </symbol>\n";	// write ; to output file
-		return output;	
+
+		endNode(NodeKind.CLASS); // write class end tag to output file
+
+		if (listener != null)
+			listener.finish();
+		finishTokens(); // tokens after the class, if any
 	}
-	
 
-	// let,if,while,do,return
-	public String compileStatements() 
+	// true if the next token starts a classVarDec
+	public boolean nextIsClassVarDec()
 	{
-		String output = "";
-		output += "<statements>\n";	// write statements tag to output file
-		tokenizer.advance();
-		while (nextIs(TokenType.KEYWORD, "")) // while next token is keyword
-		{
-			switch (tokenizer.keyword()) 		
-			{
-			    // if next token is let, write letStatement to output file
-				case Keyword.LET:	
-						output += "<letStatement>\n"
-								+ "<keyword> " + tokenizer.keyword() + " </keyword>\n" 
-								+ compileLet() 
-								+ "</letStatement>\n";	
-					break;
-					
-				// if next token is if , write ifStatement to output file
-				case Keyword.IF:	
-							output += "<ifStatement>\n"
-									+ "<keyword> " + tokenizer.keyword() + " </keyword>\n"
-									+ compileIf()
-									+ "</ifStatement>\n";
-					break;
-					
-				// if next token is while , write whileStatement to output file
-				case Keyword.WHILE:
-						output += "<whileStatement>\n"
-								+ "<keyword> " + tokenizer.keyword() + " </keyword>\n"
-								+ compileWhile()
-								+ "</whileStatement>\n";
-					break;
-					
-				// if next token is do , write doStatement to output file
-				case Keyword.DO:
-							output += "<doStatement>\n"
-									+ "<keyword> " + tokenizer.keyword() + " </keyword>\n" 
-									+ compileDo()
-									+ "</doStatement>\n";
-					break;
-					
-				// if next token is return , write returnStatement to output file
-				case Keyword.RETURN:
-						output += "<returnStatement>\n"
-								+ "<keyword> " + tokenizer.keyword() + " </keyword>\n" 
-								+ compileReturn()
-								+ "</returnStatement>\n";
-					break;
-					
-				default:
-					break;
-			}
+		return nextIs(Keyword.STATIC) || nextIs(Keyword.FIELD);
+	}
 
-			tokenizer.advance();
-		}
+	// true if the next token starts a subroutineDec
+	public boolean nextIsSubroutine()
+	{
+		return nextIs(Keyword.CONSTRUCTOR) || nextIs(Keyword.FUNCTION) || nextIs(Keyword.METHOD);
+	}
 
-		tokenizer.previousToken();
-		output += "</statements>\n";// write statements end tag to output file
-		return output;
+	// true if the next token starts a statement
+	public boolean nextIsStatement()
+	{
+		return nextIs(Keyword.LET) || nextIs(Keyword.IF) || nextIs(Keyword.WHILE) || nextIs(Keyword.DO) || nextIs(Keyword.RETURN);
 	}
 
-	// 'do' subroutineCall ';'
-	public String compileDo() 
+	// true if the next token can be a type: void, int, char, boolean or a class name
+	public boolean nextIsType()
 	{
-		String output = "";
+		return nextIs(Keyword.VOID) || nextIs(Keyword.INT) || nextIs(Keyword.CHAR) || nextIs(Keyword.BOOLEAN) || nextIs(TokenType.IDENTIFIER);
+	}
+
+	// one classVarDec, starting on its static or field keyword
+	public void compileOneClassVarDec()
+	{
+		lastError = -1;
+		int depth = this.depth;
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.IDENTIFIER, "")) // if next token is not identifier
+		try
 		{
-			output += writeError("IDENTIFIER");	// write error to output file
+			startNode(NodeKind.CLASS_VAR_DEC); 	// write classVarDec tag to output file
+			writeToken(TokenType.KEYWORD, tokenizer.keyword()); // write static or field keyword to output file
+			compileVarDec();
+			endNode(NodeKind.CLASS_VAR_DEC); // write classVarDec end tag to output file
 		}
-		output += "<identifier> " + tokenizer.identifier() + " </identifier>\n"; 	// write subroutine name to output file 	
-
-		tokenizer.advance();
-		// if next token is not . or (
-		if (!nextIs(TokenType.SYMBOL, ".") && !nextIs(TokenType.SYMBOL, "("))	
-		 {
-			output += writeError("SYMBOL");	// write error to output file
+		catch (SyntaxError e) // carry on with the next member
+		{
+			recover(depth);
+			skipToMember();
 		}
+	}
 
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write . or ( to output file
-
-		if (nextIs(TokenType.SYMBOL, ".")) 	// if next token is .
+	// ('static'|'field') type varName (',' varName)* ';'
+	public void compileClassVarDec() 	
+	 {
+		// while next token is static or field 
+		while (nextIsClassVarDec()) 
 		{
-			tokenizer.advance();
-			if (!nextIs(TokenType.IDENTIFIER, "")) // if next token is not identifier
-			{
-				output += writeError("IDENTIFIER");	// write error to output file
-			}
-			
-			output += "<identifier> " + tokenizer.identifier() + " </identifier>\n";	// write subroutine name to output file
+			tokenizer.consume();
+			compileOneClassVarDec();
+		}
+	}
 
-			tokenizer.advance();
-			if (!nextIs(TokenType.SYMBOL, "("))	// if next token is not (
-			 {
-				output += writeError("SYMBOL");	// write error to output file
-			}
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";	// write ( to output file
+	
+	// ('constructor'|'function'|'method') ('void' | type) subroutineName '(' parameterList ')' subroutineBody
+	public void compileSubroutine() 
+	{
+		// while next token is constructor, function, or method
+		while (nextIsSubroutine()) 	
+		 {
+			tokenizer.consume();
+			compileSubroutineDec();
 		}
+	}
 
-		output += compileExpressionList();	// write expressionList to output file
+	// one subroutineDec, starting on its constructor, function or method keyword
+	public void compileSubroutineDec()
+	{
+		lastError = -1;
+		int depth = this.depth;
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, ")")) // if next token is not )
+		try
 		{
-			output += writeError("SYMBOL");	
-		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";	// write ) to output file
+			startNode(NodeKind.SUBROUTINE_DEC); 	// write subroutineDec tag to output file
+			writeToken(TokenType.KEYWORD, tokenizer.keyword());
+		
+			expectType(); // void, int, char, boolean or a class name
+			expectIdentifier(); // subroutine name
+			expect(Symbol.LPAREN);
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, ";")) // if next token is not ;
-		{
-			output += writeError("SYMBOL");	
-		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";	// write ; to output file
+			startNode(NodeKind.PARAMETER_LIST); 	// write parameterList tag to output file
+			compileParameterList();
+			endNode(NodeKind.PARAMETER_LIST);	// write parameterList end tag to output file
 
-		return output;
-	}
+			expect(Symbol.RPAREN);
 
-	// 'let' varName ('[' expression ']')? '=' expression ';'
-	public String compileLet()
-	 {
-		String output = "";
+			// Subroutine body
+			startNode(NodeKind.SUBROUTINE_BODY);
+			expect(Symbol.LBRACE);
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.IDENTIFIER, ""))// if next token is not identifier
-		{
-			output += writeError("IDENTIFIER"); // write error to output file
-		}
-		output += "<identifier> " + tokenizer.identifier() + " </identifier>\n";	// write varName to output file
+			//for variable declarations eg: var char x;
+			while (nextIs(Keyword.VAR))// while next token is var
+			 {
+				tokenizer.consume();
+				startNode(NodeKind.VAR_DEC);	// write varDec tag to output file
+				writeToken(TokenType.KEYWORD, "var");	// write var keyword to output file
 
-		tokenizer.advance();
-		if (nextIs(TokenType.SYMBOL, "[")) 	// if next token is [
-		{
-			// write [ to output file and write expression to output file
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n" + compileExpression();	
+				compileVarDec();
 
-			tokenizer.advance();
-			if (!nextIs(TokenType.SYMBOL, "]")) // if next token is not ]
-			{
-				output += writeError("SYMBOL");	// write error to output file
+				endNode(NodeKind.VAR_DEC);
 			}
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ] to output file
 
-			tokenizer.advance();
+			compileStatements(); 	// compile statements
 
+			expect(Symbol.RBRACE);
+			endNode(NodeKind.SUBROUTINE_BODY);
+			endNode(NodeKind.SUBROUTINE_DEC);
 		}
-
-
-		if (!nextIs(TokenType.SYMBOL, "=")) // if next token is not =
+		catch (SyntaxError e) // carry on with the next member
 		{
-			output += writeError("SYMBOL");
+			recover(depth);
+			skipToMember();
 		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write = to output file
-
-		output += compileExpression();	// write expression to output file
-
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, ";")) // if next token is not ;
+	}
+	
+	
+    //((type varName) (',' type varName)*)?
+	public void compileParameterList()  
+	{
+		if (!nextIsType()) // no parameters
 		{
-			output += writeError("SYMBOL");	// write error to output file
+			return;
 		}
 
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ; to output file
+		expectType();
+		expectIdentifier(); // parameter name
+
+		while (nextIs(Symbol.COMMA)) 	// while next token is ,
+		{
+			tokenizer.consume();
+			writeToken(TokenType.SYMBOL, ","); // write , to output file
 
-		return output;
+			expectType();
+			expectIdentifier();
+		}
 	}
 
-	// 'while' '(' expression ')' '{' statements '}'
-	public String compileWhile() 
+	// 'var' type varName (',' varName)* ';'
+	public void compileVarDec() 
 	{
-		String output = "";
+		expectType(); // void, int, char, boolean or a class name
+		expectIdentifier(); // var name
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, "(")) // if next token is not (
+		while (nextIs(Symbol.COMMA)) // while next token is ,
 		{
-			output += writeError("SYMBOL");
-		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ( to output file
-
-		output += compileExpression();	// write expression to output file
+			tokenizer.consume();
+			writeToken(TokenType.SYMBOL, tokenizer.symbol());// write , to output file
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, ")"))	// if next token is not )
-		 {
-			output += writeError("SYMBOL");	
+			expectIdentifier(); // var name
 		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ) to output file
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, "{")) 	// if next token is not {
-		{
-			output += writeError("SYMBOL");	
-		}
-		
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write { to output file
+		expect(Symbol.SEMICOLON);
+	}
+	
 
-		output += compileStatements();	// write statements to output file
+	// let,if,while,do,return
+	// a statement with an error is skipped and the next one parsed, see skipStatement
+	public void compileStatements() 
+	{
+		startNode(NodeKind.STATEMENTS);	// write statements tag to output file
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, "}"))	// if next token is not }
+		// up to the '}' of the block, or the next member if that '}' is missing
+		while (!nextIs(Symbol.RBRACE) && !nextIsClassVarDec() && !nextIsSubroutine() && tokenizer.hasMoreTokens())
 		{
-			output += writeError("SYMBOL");	
+			int depth = this.depth;
+
+			try
+			{
+				compileStatement();
+			}
+			catch (SyntaxError e)
+			{
+				recover(depth);
+				skipStatement();
+			}
 		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write } to output file
 
-		return output;
+		endNode(NodeKind.STATEMENTS);// write statements end tag to output file
 	}
 
-	// 'return' expression? ';'
-	public String compileReturn() 
+	// one statement, chosen by its keyword
+	public void compileStatement()
 	{
-		String output = "";
+		if (!nextIsStatement())
+		{
+			syntaxError("statement");
+		}
+
+		tokenizer.consume();
+
+		switch (Keyword.of(tokenizer.keywordCode()))
+		{
+		    // if next token is let, write letStatement to output file
+			case LET:
+					startNode(NodeKind.LET_STATEMENT);
+					writeToken(TokenType.KEYWORD, tokenizer.keyword());
+					compileLet();
+					endNode(NodeKind.LET_STATEMENT);
+				break;
+
+			// if next token is if , write ifStatement to output file
+			case IF:
+						startNode(NodeKind.IF_STATEMENT);
+						writeToken(TokenType.KEYWORD, tokenizer.keyword());
+						compileIf();
+						endNode(NodeKind.IF_STATEMENT);
+				break;
+
+			// if next token is while , write whileStatement to output file
+			case WHILE:
+					startNode(NodeKind.WHILE_STATEMENT);
+					writeToken(TokenType.KEYWORD, tokenizer.keyword());
+					compileWhile();
+					endNode(NodeKind.WHILE_STATEMENT);
+				break;
+
+			// if next token is do , write doStatement to output file
+			case DO:
+						startNode(NodeKind.DO_STATEMENT);
+						writeToken(TokenType.KEYWORD, tokenizer.keyword());
+						compileDo();
+						endNode(NodeKind.DO_STATEMENT);
+				break;
+
+			// if next token is return , write returnStatement to output file
+			case RETURN:
+					startNode(NodeKind.RETURN_STATEMENT);
+					writeToken(TokenType.KEYWORD, tokenizer.keyword());
+					compileReturn();
+					endNode(NodeKind.RETURN_STATEMENT);
+				break;
 
-		tokenizer.advance();
-		if (nextIs(TokenType.SYMBOL, ";"))	// if next token is ;
-		 {
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ; to output file
-			return output;
+			default:
+				break;
 		}
-		tokenizer.previousToken();// go back to previous token
+	}
 
-		output += compileExpression();// write expression to output file
+	// 'do' subroutineCall ';'
+	public void compileDo() 
+	{
+		expectIdentifier(); // subroutine, class or var name
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, ";")) // if next token is not ;
+		if (nextIs(Symbol.DOT)) 	// if next token is .
 		{
-			output += writeError("SYMBOL");	// write error to output file
-		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";	// write ; to output file
+			tokenizer.consume();
+			writeToken(TokenType.SYMBOL, tokenizer.symbol());// write . to output file
 
-		return output;
+			expectIdentifier(); // subroutine name
+		}
 
+		expect(Symbol.LPAREN);
+		compileExpressionList();	// write expressionList to output file
+		expect(Symbol.RPAREN);
+		expect(Symbol.SEMICOLON);
 	}
 
-	//'if' '(' expression ')' '{' statements '}' ('else' '{' statements '}')?
-	public String compileIf() 
-	{
-		String output = "";
+	// 'let' varName ('[' expression ']')? '=' expression ';'
+	public void compileLet()
+	 {
+		expectIdentifier(); // varName
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, "("))	// if next token is not (
-		 
-		 {
-			output += writeError("SYMBOL");	
+		if (nextIs(Symbol.LBRACKET)) 	// if next token is [
+		{
+			// write [ to output file and write expression to output file
+			tokenizer.consume();
+			writeToken(TokenType.SYMBOL, tokenizer.symbol());
+			compileExpression();	
+
+			expect(Symbol.RBRACKET);
 		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ( to output file
 
-		output += compileExpression();	// write expression to output file
+		expect(Symbol.EQ);
+		compileExpression();	// write expression to output file
+		expect(Symbol.SEMICOLON);
+	}
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, ")")) // if next token is not )
-		{
-			output += writeError("SYMBOL");
-		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ) to output file
+	// 'while' '(' expression ')' '{' statements '}'
+	public void compileWhile() 
+	{
+		expect(Symbol.LPAREN);
+		compileExpression();	// write expression to output file
+		expect(Symbol.RPAREN);
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, "{"))	// if next token is not {
-		 
+		expect(Symbol.LBRACE);
+		compileStatements();	// write statements to output file
+		expect(Symbol.RBRACE);
+	}
+
+	// 'return' expression? ';'
+	public void compileReturn() 
+	{
+		if (nextIs(Symbol.SEMICOLON))	// if next token is ;
 		 {
-			output += writeError("SYMBOL");
+			tokenizer.consume();
+			writeToken(TokenType.SYMBOL, tokenizer.symbol());// write ; to output file
+			return;
 		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";	// write { to output file
 
-		output += compileStatements();	// write statements to output file
+		compileExpression();// write expression to output file
+		expect(Symbol.SEMICOLON);
+	}
 
-		tokenizer.advance();
-		if (!nextIs(TokenType.SYMBOL, "}")) 	// if next token is not }
-		{
-			output += writeError("SYMBOL");	
-		}
-		output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write } to output file
+	//'if' '(' expression ')' '{' statements '}' ('else' '{' statements '}')?
+	public void compileIf() 
+	{
+		expect(Symbol.LPAREN);
+		compileExpression();	// write expression to output file
+		expect(Symbol.RPAREN);
+		 
+		expect(Symbol.LBRACE);
+		compileStatements();	// write statements to output file
+		expect(Symbol.RBRACE);
 
-		tokenizer.advance();
-		if (nextIs(TokenType.KEYWORD, Keyword.ELSE)) 
+		if (nextIs(Keyword.ELSE)) 
 		{
-			output += "<keyword> " + tokenizer.keyword() + " </keyword>\n";	// write else to output file
-
-			tokenizer.advance();
-			if (!nextIs(TokenType.SYMBOL, "{")) // if next token is not {
-			{
-				output += writeError("SYMBOL");
-			}
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write { to output file
-
-			output += compileStatements();	// write statements to output file
+			tokenizer.consume();
+			writeToken(TokenType.KEYWORD, tokenizer.keyword());	// write else to output file
 
-			tokenizer.advance();
-			if (!nextIs(TokenType.SYMBOL, "}")) 	// if next token is not }
-			{
-				output += writeError("SYMBOL");	
-			}
-			output += "<symbol> " + tokenizer.symbol() + "</symbol>\n";	// write } to output file
+			expect(Symbol.LBRACE);
+			compileStatements();	// write statements to output file
+			expect(Symbol.RBRACE);
 		} 
-		else// if next token is not else
-		 {	
-			tokenizer.previousToken();
-		}
+	}
 
-		return output;
+	// true if the next token can start a term, the tokenizer is left where it was
+	public boolean nextIsTerm()
+	{
+		return nextIs(TokenType.INT_CONST) || nextIs(TokenType.STRING_CONST)
+				|| nextIs(Keyword.TRUE) || nextIs(Keyword.FALSE) || nextIs(Keyword.NULL) || nextIs(Keyword.THIS)
+				|| nextIs(Symbol.LPAREN) || nextIs(TokenType.IDENTIFIER) || nextIs(Symbol.MINUS) || nextIs(Symbol.TILDE);
+	}
 
+	// true if the next token is a binary operator: +,-,*,/,&,|,<,>,=
+	public boolean nextIsOp()
+	{
+		int code = tokenizer.symbolCode(tokenizer.peek(1));
+		return code >= 0 && Symbol.of(code).op;
 	}
 
 	//term (op term)*
-	public String compileExpression()
+	public void compileExpression()
 	 {
-		String output = "";
-		output += compileTerm();// write term to output file
+		if (!nextIsTerm())
+		{
+			syntaxError("expression");
+		}
+
+		startNode(NodeKind.EXPRESSION);
+		compileTerm();// write term to output file
 
-		tokenizer.advance();
-		
 		// while next token is symbol and symbol is +,-,*,/,&,|,<,>,=
-		while (nextIs(TokenType.SYMBOL, "") && (tokenizer.symbol().matches("[\\+|\\-|\\*|\\/|\\&|\\||\\<|\\>|\\= ]")))		
+		while (nextIsOp())		
 		 {
-			output += "<symbol> ";// write symbol to output file
-
-			switch (tokenizer.symbol()) 	
-			{
-				case "<":
-					output += "&lt;";
-					break;
-				case ">":
-					output += "&gt;";
-					break;
-				case "&":
-					output += "&amp'";
-					break;
-				default:
-					output += tokenizer.symbol(); 	
-			}
-
-			output += " </symbol>\n";// write symbol end tag to output file
-
-			output += compileTerm();// write term to output file
-			tokenizer.advance();
-		}
-		tokenizer.previousToken();
+			tokenizer.consume();
+			writeToken(TokenType.SYMBOL, tokenizer.symbol());// write symbol to output file, < > and & are escaped by the writer
 
-		if(output.isEmpty())// if output is empty
-		{
-			return "";
+			compileTerm();// write term to output file
 		}
-		
-		return "<expression>\n" + output + "</expression>\n";// write expression to output file
 
+		endNode(NodeKind.EXPRESSION);
 	}
 
 		/*
@@ -789,136 +761,108 @@ public class CompilationEngine
 		* integerConstant | stringConstant | keywordConstant | varName |
 		* varName '[' expression ']' | subroutineCall | '(' expression ')' | unaryOp term
 		*/	
-	public String compileTerm() 	
+	public void compileTerm() 	
 	{
-		String output = "";
+		if (!nextIsTerm())
+		{
+			syntaxError("term");
+		}
 
-		tokenizer.advance();
+		// a constant out of Jack's range or a string never closed is reported, and still written as a term so the parse goes on as usual
+		int value = tokenizer.intVal(tokenizer.peek(1));
+		if (value > MAX_INT || value == TokenBuffer.TOO_BIG)
+		{
+			writeError("an integer constant from 0 to " + MAX_INT);
+		}
+		else if (tokenizer.unterminated(tokenizer.peek(1)))
+		{
+			writeError("'\"' (unterminated string constant)");
+		}
+
+		startNode(NodeKind.TERM);
+		tokenizer.consume();
 		
 		// if next token is integer constant, write integer constant to output file
-		if (nextIs(TokenType.INT_CONST, "")) 
+		if (is(TokenType.INT_CONST)) 
 		{
-			output += "<integer_constant> " + tokenizer.intVal() + " </integer_constant>\n";
+			writeToken(TokenType.INT_CONST, tokenizer.intText());
 		}
 		
 		// if next token is string constant, write string constant to output file
-		else if (nextIs(TokenType.STRING_CONST, ""))
+		else if (is(TokenType.STRING_CONST))
 		{
-			output += "<string_constant> " + tokenizer.stringVal() + " </string_constant>\n";
+			writeToken(TokenType.STRING_CONST, tokenizer.stringVal());
 		}
 		
 		// if next token is keyword, write keyword to output file (keyword constants)
-		else if (nextIs(TokenType.KEYWORD, "true") || nextIs(TokenType.KEYWORD, "false") || nextIs(TokenType.KEYWORD, "null") || nextIs(TokenType.KEYWORD, "this"))	
+		else if (is(Keyword.TRUE) || is(Keyword.FALSE) || is(Keyword.NULL) || is(Keyword.THIS))	
 		{
-			output += "<keyword> " + tokenizer.keyword() + " </keyword>\n";	
+			writeToken(TokenType.KEYWORD, tokenizer.keyword());	
 		}
 		//
-		else if (nextIs(TokenType.SYMBOL, "(")) // if next token is (
+		else if (is(Symbol.LPAREN)) // if next token is (
 		{
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ( to output file
-			output += compileExpression();	// write expression to output file
-
-			tokenizer.advance();
-			if (!nextIs(TokenType.SYMBOL, ")")) // if next token is not )
-			{
-				output += writeError("SYMBOL");	
-			}
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ) to output file
+			writeToken(TokenType.SYMBOL, tokenizer.symbol());// write ( to output file
+			compileExpression();	// write expression to output file
+			expect(Symbol.RPAREN);
 		}
 		
-		else if (nextIs(TokenType.IDENTIFIER, "")) // if next token is identifier (for array variables)
+		else if (is(TokenType.IDENTIFIER)) // if next token is identifier (for array variables)
 		{
-			output += "<identifier> " + tokenizer.identifier() + " </identifier>\n";// write identifier to output file
+			writeToken(TokenType.IDENTIFIER, tokenizer.identifier());// write identifier to output file
 
-			tokenizer.advance();
-			if (nextIs(TokenType.SYMBOL, "["))	// if next token is [
+			if (nextIs(Symbol.LBRACKET))	// if next token is [
 			 {
-
-				output += "<symbol> " + tokenizer.symbol() + " </symbol>\n" + compileExpression();	// write [ to output file 
-				tokenizer.advance();
-				
-				if (!nextIs(TokenType.SYMBOL, "]")) // if next token is not ]
-				{
-					output += writeError("SYMBOL");	
-				}
-				output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ] to output file
+				tokenizer.consume();
+				writeToken(TokenType.SYMBOL, tokenizer.symbol());	// write [ to output file 
+				compileExpression();
+				expect(Symbol.RBRACKET);
 			}
 			//
-			else if (nextIs(TokenType.SYMBOL, "(") || nextIs(TokenType.SYMBOL, ".")) // if next token is ( or .
+			else if (nextIs(Symbol.LPAREN) || nextIs(Symbol.DOT)) // if next token is ( or .
 			 {
+				tokenizer.consume();
+				writeToken(TokenType.SYMBOL, tokenizer.symbol());// write ( or . to output file
 
-				output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write ( or . to output file
-
-				if (nextIs(TokenType.SYMBOL, ".")) // if next token is .
+				if (is(Symbol.DOT)) // if next token is .
 				{
-					tokenizer.advance();
-					if (!nextIs(TokenType.IDENTIFIER, "")) // if next token is not identifier
-					{
-						output += writeError("IDENTIFIER");	
-					}
-					output += "<identifier> " + tokenizer.identifier() + " </identifier>\n";// write identifier to output file
-
-					tokenizer.advance();
-					if (!nextIs(TokenType.SYMBOL, "("))	// if next token is not (
-					 {
-						output += writeError("SYMBOL");	
-					}
-					output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";	// write ( to output file
+					expectIdentifier(); // subroutine name
+					expect(Symbol.LPAREN);
 				}
 
-				output += compileExpressionList();	// write expression list to output file
-
-				tokenizer.advance();
-				if (!nextIs(TokenType.SYMBOL, ")")) 	// if next token is not )
-				{
-					output += writeError("SYMBOL");
-				}
-				output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";	// write ) to output file
-
-			}
-			 else 
-			{
-				tokenizer.previousToken();	// if next token is not ( or .	
+				compileExpressionList();	// write expression list to output file
+				expect(Symbol.RPAREN);
 			}
 
 		}
-		 else if (nextIs(TokenType.SYMBOL, "-") || nextIs(TokenType.SYMBOL, "~")) 	// if next token is - or ~
+		 else if (is(Symbol.MINUS) || is(Symbol.TILDE)) 	// if next token is - or ~
 		 {
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";// write - or ~ to output file
-			output += compileTerm();	// write term to output file
+			writeToken(TokenType.SYMBOL, tokenizer.symbol());// write - or ~ to output file
+			compileTerm();	// write term to output file
 
 		} 
-		else 
-		{
-			tokenizer.previousToken();// if next token is not integer constant, string constant, keyword, (, -, or ~
-		}
-		
-		if(output.isEmpty())// if output is empty
-		{
-			return "";
-		}
 
-		return "<term>\n" + output + "</term>\n";	// write term to output file and return output	
+		endNode(NodeKind.TERM);	// write term end tag to output file
 	}
 
 	//(expression (','expression)*)?
-	public String compileExpressionList() 
+	public void compileExpressionList() 
 	{
-		String output = "";
+		startNode(NodeKind.EXPRESSION_LIST);
 
-		output += compileExpression();	// write expression to output file
-
-		tokenizer.advance();
-		while (nextIs(TokenType.SYMBOL, ",")) 	// if next token is ,
+		if (nextIsTerm()) // the list may be empty
 		{
-			output += "<symbol> " + tokenizer.symbol() + " </symbol>\n";	// write , to output file
+			compileExpression();	// write expression to output file
 
-			output += compileExpression();	// write expression to output file	
-			tokenizer.advance();
-		}
-		tokenizer.previousToken();
+			while (nextIs(Symbol.COMMA)) 	// if next token is ,
+			{
+				tokenizer.consume();
+				writeToken(TokenType.SYMBOL, tokenizer.symbol());	// write , to output file
 
-		return "<expressionList>\n" + output + "</expressionList>\n";// write expression list to output file and return output	
+				compileExpression();	// write expression to output file
+			}
+		}
 
+		endNode(NodeKind.EXPRESSION_LIST);// write expression list end tag to output file
 	}
 }
\ No newline at end of file
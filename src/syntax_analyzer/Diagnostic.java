@@ -0,0 +1,28 @@
+package syntax_analyzer;
+
+// one syntax error - where it is, what the grammar needed there and what was there instead
+public class Diagnostic
+{
+	public int line; // from 1
+	public int column; // from 1
+	public String expected; // what the grammar needed
+	public String found; // the token that was there, quoted, or "end of file"
+
+	// the error at the token kept at slot in tokens, slot -1 for the end of the file
+	// the position is in the text the tokens were lexed from, found with lines
+	public Diagnostic(TokenBuffer tokens, int slot, LineCounter lines, String expected)
+	{
+		lines.locate(slot >= 0 ? tokens.start[slot] : tokens.source.length());
+		line = lines.line;
+		column = lines.column;
+
+		this.expected = expected;
+		found = slot >= 0 ? "'" + tokens.text(slot) + "'" : "end of file";
+	}
+
+	// line:column: expected ... but found ...
+	public String toString()
+	{
+		return line + ":" + column + ": expected " + expected + " but found " + found;
+	}
+}
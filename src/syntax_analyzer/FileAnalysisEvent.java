@@ -0,0 +1,39 @@
+package syntax_analyzer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event for the analysis of one file, from JackAnalyzer.analyze starting on it to its log being ready
+// shows up in a recording (jcmd PID JFR.start, or -XX:StartFlightRecording) under Jack Analyzer
+@Name("syntax_analyzer.FileAnalysis")
+@Label("File Analysis")
+@Category("Jack Analyzer")
+@StackTrace(false)
+@Description("Analysis of one .jack file")
+public class FileAnalysisEvent extends jdk.jfr.Event
+{
+	@Label("File")
+	public String file;
+
+	@Label("Size")
+	@DataAmount
+	public long bytes;
+
+	@Label("Tokens")
+	public int tokens;
+
+	@Label("Syntax Errors")
+	public int errors;
+
+	@Label("Written")
+	@DataAmount
+	public long written; // bytes of the output files
+
+	@Label("Cached")
+	@Description("Skipped, the cache had its output")
+	public boolean cached;
+}
@@ -0,0 +1,175 @@
+package syntax_analyzer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+// size, tokens, errors, and wall time and allocated bytes of each phase of analyzing one file
+// a phase is measured from the end of the one before it: start(), then end(phase) as each phase finishes
+// and each one is committed as a PhaseEvent - without -stats lexing, parsing and writing happen in one pass
+// after the file is read and all count as parse (or as parse and xml with -tree)
+public class FileStats
+{
+	// phases, in the order a file goes through them
+	public static final int READ = 0; // reading or mapping the file
+	public static final int COMMENTS = 1; // stripping comments, only the regex lexer has this as its own phase
+	public static final int LEX = 2;
+	public static final int TOKENS = 3; // writing TokensOnly.xml
+	public static final int PARSE = 4; // building the parse tree
+	public static final int XML = 5; // writing Completed.xml from the tree
+	public static final int BINARY = 6; // writing Completed.bin from the tree, with -binary
+
+	public static final String[] names = { "read", "comments", "lex", "tokens", "parse", "xml", "binary" };
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public String file;
+	public long bytes; // size of the file
+	public int tokens; // tokens in it, the ones lexed so far while it is analyzed
+	public int errors; // syntax errors in it
+	public long written; // bytes of the output files
+	public long[] nanos = new long[names.length]; // wall time of each phase
+	public long[] allocated = new long[names.length]; // bytes allocated by each phase, all 0 if the JVM can't tell
+
+	private long lastTime; // when the last phase ended
+	private long lastAllocated; // bytes the thread had allocated by then
+	private PhaseEvent event; // the phase going on, for JFR
+
+	public FileStats(String file)
+	{
+		this.file = file;
+	}
+
+	// the first phase starts now
+	public void start()
+	{
+		lastTime = System.nanoTime();
+		lastAllocated = allocatedSoFar();
+
+		event = new PhaseEvent();
+		event.begin();
+	}
+
+	// phase ends now, the next one starts
+	public void end(int phase)
+	{
+		long time = System.nanoTime();
+		long alloc = allocatedSoFar();
+
+		nanos[phase] += time - lastTime;
+		allocated[phase] += alloc - lastAllocated;
+
+		if (event.shouldCommit())
+		{
+			event.file = file;
+			event.phase = names[phase];
+			event.bytes = bytes;
+			event.tokens = tokens;
+			event.allocated = alloc - lastAllocated;
+			event.commit();
+		}
+
+		lastTime = time;
+		lastAllocated = alloc;
+
+		event = new PhaseEvent();
+		event.begin();
+	}
+
+	// wall time of all phases
+	public long totalNanos()
+	{
+		long total = 0;
+		for (long n : nanos)
+			total += n;
+		return total;
+	}
+
+	// one tab separated line: file, bytes, tokens, then the nanoseconds and allocated bytes of each phase
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder(file).append('\t').append(bytes).append('\t').append(tokens);
+		for (int i = 0; i < names.length; i++)
+			s.append('\t').append(nanos[i]).append('\t').append(allocated[i]);
+		return s.toString();
+	}
+
+	// header naming the columns of toString
+	public static String header()
+	{
+		StringBuilder s = new StringBuilder("file\tbytes\ttokens");
+		for (String name : names)
+			s.append('\t').append(name).append(" ns\t").append(name).append(" bytes");
+		return s.toString();
+	}
+
+	// totals of every phase over the batch, throughput, and percentiles of the time per file
+	public static String summary(List<FileStats> files)
+	{
+		StringBuilder s = new StringBuilder();
+		String nl = System.lineSeparator();
+
+		if (files.isEmpty())
+			return "no files analyzed" + nl;
+
+		long[] nanos = new long[names.length];
+		long[] allocated = new long[names.length];
+		long bytes = 0;
+		long tokens = 0;
+		long[] perFile = new long[files.size()];
+
+		for (int i = 0; i < files.size(); i++)
+		{
+			FileStats f = files.get(i);
+			for (int p = 0; p < names.length; p++)
+			{
+				nanos[p] += f.nanos[p];
+				allocated[p] += f.allocated[p];
+			}
+			bytes += f.bytes;
+			tokens += f.tokens;
+			perFile[i] = f.totalNanos();
+		}
+
+		long total = 0;
+		for (long n : nanos)
+			total += n;
+
+		s.append(String.format("%-10s %12s %7s %14s%n", "phase", "ms", "share", "allocated MB"));
+		for (int p = 0; p < names.length; p++)
+			s.append(String.format("%-10s %12.3f %6.1f%% %14.3f%n", names[p], nanos[p] / 1e6, total == 0 ? 0 : 100.0 * nanos[p] / total, allocated[p] / 1e6));
+		s.append(String.format("%-10s %12.3f %6.1f%% %14.3f%n", "total", total / 1e6, 100.0, sum(allocated) / 1e6));
+
+		double seconds = total / 1e9;
+		s.append(String.format("%d files, %d bytes, %d tokens: %.3f MB/s, %.0f tokens/s%n", files.size(), bytes, tokens, bytes / 1e6 / seconds, tokens / seconds));
+
+		Arrays.sort(perFile);
+		s.append(String.format("ms per file: p50 %.3f, p95 %.3f, p99 %.3f, max %.3f%n",
+				percentile(perFile, 50) / 1e6, percentile(perFile, 95) / 1e6, percentile(perFile, 99) / 1e6, perFile[perFile.length - 1] / 1e6));
+
+		return s.toString();
+	}
+
+	// the value p percent of sorted are at or below, nearest rank
+	public static long percentile(long[] sorted, int p)
+	{
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+
+	private static long sum(long[] values)
+	{
+		long total = 0;
+		for (long v : values)
+			total += v;
+		return total;
+	}
+
+	// bytes this thread has allocated since it started, 0 if the JVM doesn't keep count
+	private static long allocatedSoFar()
+	{
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+			return 0;
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,309 @@
+package syntax_analyzer;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+import util.NodeKind;
+
+// tokens and parse trees of one file that is being edited, brought up to date after every edit
+// only the tokens around an edit are lexed again, and only the classVarDec / subroutineDec members
+// that looked at those tokens are parsed again, everything else is kept from the previous result
+public class IncrementalAnalyzer
+{
+	// one classVarDec or subroutineDec of the class
+	public static class Member
+	{
+		public int kind; // NodeKind.CLASS_VAR_DEC or NodeKind.SUBROUTINE_DEC
+		public int first; // index of its first token
+		public int end; // index just after its last token
+		public int reach; // furthest token looked at while parsing it
+		public ParseTree tree; // its parse tree, token numbers relative to first
+		public int lastError = -1; // token of the last error it reported, -1 if none, and what that error expected
+		public String lastExpected; // - the '}' after it doesn't report the same error again
+	}
+
+	public char[] text; // the whole file as it is now
+	public TokenBuffer tokens;
+	public JackTokenizer tokenizer;
+	public CompilationEngine engine;
+
+	public ParseTree header; // 'class' className '{' , with the class node left open
+	public int headerLast; // current token once the header is parsed
+	public int headerReach; // furthest token looked at while parsing the header
+	public int headerError = -1; // last error the header reported, like Member.lastError
+	public String headerExpected;
+	public ArrayList<Member> members = new ArrayList<Member>();
+	public ParseTree footer; // the closing '}'
+
+	public int tokensLexed; // tokens lexed by the last edit
+	public int membersParsed; // members parsed by the last edit
+
+	public IncrementalAnalyzer(String source)
+	{
+		text = source.toCharArray();
+		tokens = new TokenBuffer(SourceText.of(text, text.length), text.length / 3);
+		JackLexer.tokenize(tokens.source, tokens);
+
+		tokenizer = new JackTokenizer(tokens);
+		engine = new CompilationEngine(tokenizer);
+		engine.diagnostics = null; // their positions would go stale as the text is edited, the error leaves of the trees hold them
+
+		parseAll();
+	}
+
+	// replace removed characters at offset with inserted, then bring the tokens and trees up to date
+	// lexing and parsing stay within the members the edit touches, but the text is copied and the tokens after the edit
+	// moved, which is linear in the file: about 0.1 ms of a 5,000 line class, see the README
+	public void edit(int offset, int removed, String inserted)
+	{
+		int shift = inserted.length() - removed;
+
+		char[] newText = new char[text.length + shift];
+		System.arraycopy(text, 0, newText, 0, offset);
+		inserted.getChars(0, inserted.length(), newText, offset);
+		System.arraycopy(text, offset + removed, newText, offset + inserted.length(), text.length - offset - removed);
+		SourceText source = SourceText.of(newText, newText.length);
+
+		// lex again from the last token before the edited line - a quote earlier on the line may now close a string,
+		// and a token just before the edit may now run on into the edited text
+		int lineStart = offset;
+		while (lineStart > 0 && text[lineStart - 1] != '\n')
+			lineStart--;
+
+		int first = lastTokenBefore(lineStart);
+		int from = first >= 0 ? tokens.start[first] : 0;
+		if (first < 0)
+			first = 0;
+
+		// old tokens from 'after' on start behind the edit, once a new token starts where one of them (moved) did
+		// the rest of the tokens are the same as before
+		int after = first;
+		while (after < tokens.size && tokens.start[after] < offset + removed)
+			after++;
+
+		TokenBuffer fresh = new TokenBuffer(source, 16);
+		fresh.pool = tokens.pool; // its ids go into tokens, they must come from the same pool even if the shared one was renewed
+		int editEnd = offset + inserted.length();
+		int old = after;
+		int i = from;
+		boolean inStep = false;
+
+		while (i < newText.length && !inStep)
+		{
+			i = JackLexer.next(source, i, newText.length, fresh);
+			if (fresh.size == 0)
+				continue;
+
+			int start = fresh.start[fresh.size - 1];
+			if (start < editEnd)
+				continue;
+
+			while (old < tokens.size && tokens.start[old] + shift < start)
+				old++;
+
+			if (old < tokens.size && tokens.start[old] + shift == start) // back in step with the old tokens
+			{
+				fresh.size--;
+				inStep = true;
+			}
+		}
+
+		if (!inStep) // lexed to the end, every token from first on is replaced
+			old = tokens.size;
+
+		// tokens lexed again that ended before the edit came out the same, the parse only has to look from the first that didn't
+		int same = 0;
+		while (same < fresh.size && first + same < old && fresh.start[same] == tokens.start[first + same]
+			&& fresh.length[same] == tokens.length[first + same] && fresh.type[same] == tokens.type[first + same]
+			&& fresh.start[same] + fresh.length[same] <= offset)
+			same++;
+
+		int oldSize = tokens.size;
+		text = newText;
+		tokensLexed = fresh.size;
+		tokens.replace(first, old, fresh, shift);
+
+		reparse(first + same, old, oldSize, fresh.size - (old - first));
+	}
+
+	// parse members again after old tokens [first, last) of oldSize were replaced, moving token numbers behind them by delta
+	// a part that was parsed up to the last token also looked at the end of the file, so anything added there concerns it
+	private void reparse(int first, int last, int oldSize, int delta)
+	{
+		membersParsed = 0;
+
+		if (first <= headerReach || headerReach == oldSize - 1) // the header changed, start over
+		{
+			parseAll();
+			return;
+		}
+
+		// members before k are untouched, members from tail on come after the change and only move
+		int k = 0;
+		while (k < members.size() && members.get(k).reach < first && members.get(k).reach < oldSize - 1)
+			k++;
+
+		int tail = k;
+		while (tail < members.size() && members.get(tail).first < last)
+			tail++;
+
+		ArrayList<Member> kept = new ArrayList<Member>(members.subList(tail, members.size()));
+		for (Member m : kept)
+		{
+			m.first += delta;
+			m.end += delta;
+			m.reach += delta;
+			m.tree.base += delta;
+			if (m.lastError >= 0)
+				m.lastError += delta;
+		}
+
+		members.subList(k, members.size()).clear();
+
+		// carry on the way compileClass does, from just after member k-1
+		if (k == 0)
+			parseMembers(headerLast, NodeKind.CLASS_VAR_DEC, kept);
+		else
+			parseMembers(members.get(k - 1).end - 1, members.get(k - 1).kind, kept);
+	}
+
+	// parse the whole file
+	private void parseAll()
+	{
+		members.clear();
+		membersParsed = 0;
+
+		tokenizer.reset();
+		engine.listener = header = new ParseTree(tokens, 0, 16);
+		engine.compileClassStart();
+		headerLast = tokenizer.currToken;
+		headerReach = tokenizer.furthest;
+		headerError = engine.lastError;
+		headerExpected = engine.lastExpected;
+
+		parseMembers(headerLast, NodeKind.CLASS_VAR_DEC, new ArrayList<Member>());
+	}
+
+	// parse members the same way compileClassVarDec and compileSubroutine do, starting with the tokenizer on
+	// token current and in the loop for members of kind phase, then parse the closing '}'
+	// as soon as a member would start where one of kept does, kept is used from there on
+	private void parseMembers(int current, int phase, ArrayList<Member> kept)
+	{
+		int next = 0; // first member of kept that may still be used
+
+		tokenizer.seek(current);
+
+		while (true)
+		{
+			boolean starts = phase == NodeKind.CLASS_VAR_DEC ? engine.nextIsClassVarDec() : engine.nextIsSubroutine();
+
+			if (!starts)
+			{
+				if (phase == NodeKind.CLASS_VAR_DEC) // on to the subroutines, like compileClass
+				{
+					phase = NodeKind.SUBROUTINE_DEC;
+					continue;
+				}
+
+				break;
+			}
+
+			int at = tokenizer.peek(1);
+
+			while (next < kept.size() && kept.get(next).first < at) // swallowed by the members parsed again
+				next++;
+
+			if (next < kept.size() && kept.get(next).first == at && kept.get(next).kind == phase) // in step again, reuse the rest
+			{
+				Member lastKept = kept.get(kept.size() - 1);
+				members.addAll(kept.subList(next, kept.size()));
+				next = kept.size();
+
+				tokenizer.seek(lastKept.end - 1);
+				phase = lastKept.kind;
+				continue;
+			}
+
+			Member m = new Member();
+			m.kind = phase;
+			m.first = at;
+			m.tree = new ParseTree(tokens, at, 64);
+
+			engine.listener = m.tree;
+			tokenizer.consume();
+			tokenizer.furthest = at;
+			if (phase == NodeKind.CLASS_VAR_DEC)
+				engine.compileOneClassVarDec();
+			else
+				engine.compileSubroutineDec();
+
+			m.end = tokenizer.currToken + 1;
+			m.reach = tokenizer.furthest;
+			m.lastError = engine.lastError;
+			m.lastExpected = engine.lastExpected;
+			members.add(m);
+			membersParsed++;
+		}
+
+		// the '}' doesn't repeat the last error of the member before it, or of the header if there are no members
+		engine.lastError = headerError;
+		engine.lastExpected = headerExpected;
+		if (!members.isEmpty())
+		{
+			engine.lastError = members.get(members.size() - 1).lastError;
+			engine.lastExpected = members.get(members.size() - 1).lastExpected;
+		}
+
+		engine.listener = footer = new ParseTree(tokens, 0, 16);
+		engine.compileClassEnd();
+		engine.listener = null;
+	}
+
+	// index of the last token starting before offset, -1 if there is none
+	private int lastTokenBefore(int offset)
+	{
+		int low = 0;
+		int high = tokens.size - 1;
+		int found = -1;
+
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if (tokens.start[mid] < offset)
+			{
+				found = mid;
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+
+		return found;
+	}
+
+	// write the current result as Completed.xml
+	public void writeXml(OutputStream o)
+	{
+		XmlWriter xml = new XmlWriter(o);
+
+		XmlTreeWriter writer = new XmlTreeWriter(xml)
+		{
+			// the class node is only closed after the footer
+			public void endNode(ParseTree tree, int node)
+			{
+				if (tree.kind[node] != NodeKind.CLASS)
+					super.endNode(tree, node);
+			}
+		};
+
+		header.accept(writer);
+		for (Member m : members)
+			m.tree.accept(writer);
+		footer.accept(writer);
+
+		xml.endNode(NodeKind.CLASS);
+		xml.close();
+	}
+}
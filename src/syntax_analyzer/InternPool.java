@@ -0,0 +1,195 @@
+package syntax_analyzer;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import util.Keyword;
+import util.Symbol;
+
+// maps the text of keywords, symbols and identifiers to small int ids, shared by every file of a run
+// so a name that appears in thousands of places is kept as one String, and tokens can be compared by id
+// the keywords are interned first and then the symbols, so their ids never change:
+// a keyword's id is its Keyword ordinal, a symbol's id is FIRST_SYMBOL + its Symbol ordinal
+public class InternPool
+{
+	public static final int FIRST_SYMBOL = Keyword.values().length; // id of the first Symbol
+
+	// the pool every new TokenBuffer uses unless told otherwise, replaced by renew() once it holds too many names
+	public static volatile InternPool shared = new InternPool();
+	public static int limit = 1 << 18; // names the shared pool may hold before renew() starts a new one
+
+	private static final int STRIPES = 32; // independent tables, each with its own lock, so threads rarely wait for each other
+	private static final int CHUNK_BITS = 12; // names are stored in chunks of 4096, a chunk never moves once it exists
+	private static final int CHUNK = 1 << CHUNK_BITS;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final AtomicInteger count = new AtomicInteger(); // next id
+	private volatile String[][] chunks = new String[16][]; // chunks[id >> CHUNK_BITS][id & (CHUNK - 1)] is the name with that id
+
+	private final HashMap<String, Integer> reserved = new HashMap<String, Integer>(); // ids of the keywords and symbols, never changed after the constructor
+
+	// one open addressing table, holding id + 1 per slot (0 = empty) and the hash of that name
+	private static class Stripe
+	{
+		int[] ids = new int[64];
+		int[] hashes = new int[64];
+		int size;
+	}
+
+	public InternPool()
+	{
+		for (int s = 0; s < STRIPES; s++)
+			stripes[s] = new Stripe();
+
+		for (Keyword k : Keyword.values())
+			reserved.put(k.word, intern(k.word));
+
+		for (Symbol s : Symbol.values())
+			reserved.put(s.text, intern(s.text));
+	}
+
+	// -daemon and -watch call this before each request or round of saves, so a process that runs for weeks doesn't keep
+	// every name it ever saw: past the limit the shared pool is replaced by a new one, files already being lexed go on with
+	// the old one and it is collected once they are done - keywords and symbols have the same ids in every pool
+	public static synchronized void renew()
+	{
+		if (shared.size() > limit)
+			shared = new InternPool();
+	}
+
+	// id of a keyword or symbol, -1 for anything else - needs no lock
+	public int reservedId(String s)
+	{
+		Integer id = reserved.get(s);
+		return id == null ? -1 : id;
+	}
+
+	// id of the len characters of src starting at start, adding them to the pool the first time
+	public int intern(SourceText src, int start, int len)
+	{
+		int h = 0;
+		for (int k = start; k < start + len; k++)
+			h = 31 * h + src.charAt(k);
+
+		Stripe stripe = stripes[spread(h) & (STRIPES - 1)];
+
+		synchronized (stripe)
+		{
+			int mask = stripe.ids.length - 1;
+			int slot = (spread(h) >>> 5) & mask;
+
+			while (stripe.ids[slot] != 0)
+			{
+				int id = stripe.ids[slot] - 1;
+				if (stripe.hashes[slot] == h && sameText(text(id), src, start, len))
+					return id;
+
+				slot = (slot + 1) & mask;
+			}
+
+			int id = add(src.text(start, len));
+			stripe.ids[slot] = id + 1;
+			stripe.hashes[slot] = h;
+
+			if (++stripe.size * 2 > stripe.ids.length) // keep the table at most half full
+				rehash(stripe);
+
+			return id;
+		}
+	}
+
+	// id of s, adding it to the pool the first time
+	public int intern(String s)
+	{
+		char[] chars = s.toCharArray();
+		return intern(SourceText.of(chars, chars.length), 0, chars.length);
+	}
+
+	// the name with this id
+	public String text(int id)
+	{
+		return chunks[id >>> CHUNK_BITS][id & (CHUNK - 1)];
+	}
+
+	// number of distinct names in the pool
+	public int size()
+	{
+		return count.get();
+	}
+
+	// store a new name under the next id
+	private int add(String name)
+	{
+		int id = count.getAndIncrement();
+		int c = id >>> CHUNK_BITS;
+
+		String[][] current = chunks;
+		if (c >= current.length || current[c] == null) // first id of a new chunk, several stripes may get here at once
+		{
+			synchronized (this)
+			{
+				current = chunks;
+				if (c >= current.length)
+				{
+					String[][] bigger = new String[current.length * 2][];
+					System.arraycopy(current, 0, bigger, 0, current.length);
+					current = bigger;
+				}
+
+				if (current[c] == null)
+					current[c] = new String[CHUNK];
+
+				chunks = current; // publish
+			}
+		}
+
+		current[c][id & (CHUNK - 1)] = name;
+		return id;
+	}
+
+	// double a stripe's table
+	private static void rehash(Stripe stripe)
+	{
+		int[] oldIds = stripe.ids;
+		int[] oldHashes = stripe.hashes;
+		int mask = oldIds.length * 2 - 1;
+
+		stripe.ids = new int[oldIds.length * 2];
+		stripe.hashes = new int[oldIds.length * 2];
+
+		for (int i = 0; i < oldIds.length; i++)
+		{
+			if (oldIds[i] == 0)
+				continue;
+
+			int slot = (spread(oldHashes[i]) >>> 5) & mask;
+			while (stripe.ids[slot] != 0)
+				slot = (slot + 1) & mask;
+
+			stripe.ids[slot] = oldIds[i];
+			stripe.hashes[slot] = oldHashes[i];
+		}
+	}
+
+	// mix the high bits of a hash into the low ones, which pick the stripe and the slot
+	private static int spread(int h)
+	{
+		h ^= h >>> 16;
+		h *= 0x45d9f3b;
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean sameText(String name, SourceText src, int start, int len)
+	{
+		if (name.length() != len)
+			return false;
+
+		for (int k = 0; k < len; k++)
+		{
+			if (name.charAt(k) != src.charAt(start + k))
+				return false;
+		}
+
+		return true;
+	}
+}
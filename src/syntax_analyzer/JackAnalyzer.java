@@ -1,76 +1,489 @@
 package syntax_analyzer;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 
 
 public class JackAnalyzer
 { 
+	// changes whenever the output for the same input may change, cached results of other versions are not reused
+	public static final String VERSION = "3";
 
-	public static void main(String[] args) 
+	public static boolean regexLexer = false; // -regex : tokenize with the original regex lexer instead of JackLexer
+	public static boolean buildTree = false; // -tree : build the parse tree in memory first, then write the XML from it
+	public static int threads = 1; // -threads N : number of files analyzed at the same time
+	public static AnalysisCache cache; // -cache DIR : skip files that haven't changed since the last run using DIR
+	public static boolean writeTokens = true; // -no-tokens : don't write *TokensOnly.xml
+	public static boolean writeParse = true; // -no-parse : don't write *Completed.xml, the files are only tokenized
+	public static boolean writeBinary = false; // -binary : also write the parse tree as *Completed.bin, see BinaryTreeWriter
+	public static List<FileStats> stats; // -stats : time every phase of every file and print a summary of the batch
+	public static String statsFile; // -stats-file FILE : also write the numbers of each file to FILE
+	public static final AnalyzerMonitor monitor = AnalyzerMonitor.register(); // counters for JMX
+	public static boolean daemon = false; // -daemon : answer requests from stdin instead of analyzing the files given
+	public static int port = 0; // -port N : answer requests from connections to port N on this machine
+	public static boolean watch = false; // -watch : after analyzing the files, analyze each one again whenever it changes
+	public static boolean stream = false; // -stream : analyze in memory that doesn't grow with the file, see compile
+
+	public static void main(String[] args) throws Exception
 	{
-		ArrayList<File> jackFiles = new ArrayList<File>(); // list of jack files
-		
-		//inputFile = new File(filePath);
-		File inputFile = new File("C:\\Users\\ANNAPOORNA\\Desktop\\ANNAPOORNA AK_AM.EN.U4AIE21114\\nand2tetris\\projects\\10\\Square");
+		ArrayList<String> filePaths = new ArrayList<String>(); // files and directories given on the command line
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-regex"))
+				regexLexer = true;
+			else if (args[i].equals("-tree"))
+				buildTree = true;
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-cache"))
+				cache = new AnalysisCache(new File(args[++i]).toPath());
+			else if (args[i].equals("-no-tokens"))
+				writeTokens = false;
+			else if (args[i].equals("-no-parse"))
+				writeParse = false;
+			else if (args[i].equals("-binary"))
+				writeBinary = true;
+			else if (args[i].equals("-stats"))
+				stats = Collections.synchronizedList(new ArrayList<FileStats>());
+			else if (args[i].equals("-stats-file"))
+			{
+				stats = Collections.synchronizedList(new ArrayList<FileStats>());
+				statsFile = args[++i];
+			}
+			else if (args[i].equals("-daemon"))
+				daemon = true;
+			else if (args[i].equals("-port"))
+				port = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-watch"))
+				watch = true;
+			else if (args[i].equals("-stream"))
+				stream = true;
+			else
+				filePaths.add(args[i]);
+		}
+
+		if (stream && (buildTree || writeBinary || regexLexer)) // each of these holds the whole file's tokens or tree
+		{
+			System.out.println("-stream can't be used with -tree, -binary or -regex");
+			return;
+		}
+
+		if (daemon || port > 0) // stay up and analyze what each request names, see AnalyzerDaemon
+		{
+			AnalyzerDaemon d = new AnalyzerDaemon(threads > 1 ? threads : Runtime.getRuntime().availableProcessors());
+			if (port > 0)
+				d.listen(port);
+			else
+				d.serve(System.in, System.out);
+
+			d.shutdown();
+			if (stats != null)
+				writeStats();
+			return;
+		}
+
+		if (filePaths.isEmpty()) // nothing given
+		{
+			System.out.println("usage: java syntax_analyzer.JackAnalyzer [options] (file.jack | directory)...");
+			return;
+		}
 		
 		System.out.println("The converted files are:");
 
-		if (inputFile.isDirectory()) //if the path given is a directory's
+		// watch before the first run starts, so a file saved while it goes on is analyzed again once it is done
+		AnalyzerWatcher watcher = watch ? new AnalyzerWatcher(filePaths) : null;
+
+		StringBuilder log = new StringBuilder();
+		ArrayList<File> jackFiles = collect(filePaths, log);
+		System.out.print(log);
+
+		monitor.queueDepth.addAndGet(jackFiles.size());
+
+		if (threads > 1)
 		{
-			// Recursively look for .jack files
-			File[] dirChildren = inputFile.listFiles(); // get all files in the directory
+			analyzeParallel(jackFiles);
+		}
+		else
+		{
+			// for each jack file
+			for (File f : jackFiles)
+				System.out.print(analyzeQueued(f, null));
+		}
 
-			if (dirChildren.length > 0) 
+		if (stats != null)
+			writeStats();
+
+		if (watcher != null)
+			watcher.run();
+	}
+
+	// the .jack files given and those in the directories given, anything worth telling about them goes to log
+	public static ArrayList<File> collect(List<String> filePaths, StringBuilder log)
+	{
+		ArrayList<File> jackFiles = new ArrayList<File>(); // list of jack files
+
+		for (String filePath : filePaths)
+		{
+			File inputFile = new File(filePath);
+
+			if (inputFile.isDirectory()) //if the path given is a directory's
 			{
-				for (File f : dirChildren) 
+				// Recursively look for .jack files
+				File[] dirChildren = inputFile.listFiles(); // get all files in the directory
+
+				if (dirChildren.length > 0) 
+				{
+					for (File f : dirChildren) 
+					{
+						if (f.getName().endsWith(".jack")) // if file is a .jack file
+							jackFiles.add(f); // add to list of jack files
+					}
+				} 
+				else 
 				{
-					if (f.getName().endsWith(".jack")) // if file is a .jack file
-						jackFiles.add(f); // add to list of jack files
+					log.append("This directory is empty!").append(System.lineSeparator()); // nothing to do for this one, carry on with the rest
 				}
+
 			} 
-			else 
+			else if (inputFile.isFile()) 
+			{
+				jackFiles.add(inputFile);
+			}
+			else // a typo, or removed since - nothing would be written for it, so say so instead of leaving it out
 			{
-				System.out.println("This directory is empty!");
-				System.exit(0); // exit if directory is empty
+				log.append("ERROR! no such file or directory: ").append(filePath).append(System.lineSeparator());
 			}
+		}
 
-		} 
-		else if (inputFile.isFile()) 
+		return jackFiles;
+	}
+
+	// print the summary of the batch, and write every file's numbers if asked to
+	public static void writeStats() throws IOException
+	{
+		System.out.println();
+		System.out.print(FileStats.summary(stats));
+
+		if (statsFile == null)
+			return;
+
+		// threads add their files as they finish, sorted by path the rows come out the same every run and can be diffed
+		ArrayList<FileStats> rows;
+		synchronized (stats)
 		{
-			jackFiles.add(inputFile);
+			rows = new ArrayList<FileStats>(stats);
 		}
+		rows.sort(Comparator.comparing((FileStats s) -> s.file)); // stable, a file analyzed again stays after its earlier rows
+
+		try (PrintWriter w = new PrintWriter(new FileWriter(statsFile)))
+		{
+			w.println(FileStats.header());
+			for (FileStats s : rows)
+				w.println(s);
+		}
+	}
+
+	// analyze the files on a pool of threads, biggest files first so a large one doesn't finish last on its own
+	// what each file prints still comes out in the order of jackFiles
+	public static void analyzeParallel(ArrayList<File> jackFiles) throws InterruptedException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+		Integer[] order = new Integer[jackFiles.size()]; // indexes of the files, largest file first
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(jackFiles.get(b).length(), jackFiles.get(a).length()));
+
+		ArrayList<Future<String>> results = new ArrayList<Future<String>>(Collections.nCopies(order.length, (Future<String>) null));
+		for (int i : order)
+			results.set(i, pool.submit(() -> analyzeQueued(jackFiles.get(i), null)));
+
+		for (Future<String> result : results)
+		{
+			try
+			{
+				System.out.print(result.get()); // waits for this file if it isn't done yet
+			}
+			catch (ExecutionException e)
+			{
+				System.out.println("ERROR!");
+			}
+		}
+
+		pool.shutdown();
+	}
+
+	// analyze a file that was counted in monitor.queueDepth
+	public static String analyzeQueued(File f, File outDir)
+	{
+		monitor.queueDepth.decrementAndGet();
+		return analyze(f, outDir);
+	}
+
+	// tokenize and compile one file, returning what is printed for it - its name, then one line per syntax error
+	public static String analyze(File f)
+	{
+		return analyze(f, null);
+	}
+
+	// analyze, writing the output files to outDir, or next to f if it is null
+	public static String analyze(File f, File outDir)
+	{
+		StringBuilder log = new StringBuilder();
+		List<String> errors;
+		FileStats s = new FileStats(f.getPath());
+		FileAnalysisEvent event = new FileAnalysisEvent();
+		event.begin();
+
+		try
+		{ 
+			
+			String filename = f.getName().replaceAll("\\..*", ""); //to get filename without extension
+			//System.out.println(filename);
+			String dir = f.getParent() != null ? f.getParent() : "."; // get directory, a bare file name is in the current one
+			//System.out.println(dir);
+
+			log.append(dir + "/" + filename).append(System.lineSeparator());
+
+			if (outDir != null)
+				dir = outDir.getPath();
+			
+			File completed = new File(dir + "/" + filename + "Completed.xml");
+			File tokensOnly = new File(dir + "/" + filename + "TokensOnly.xml");
+			File[] outputs = writeBinary ? new File[] { completed, tokensOnly, binaryFile(completed) } : new File[] { completed, tokensOnly };
+
+			if (cache == null)
+			{
+				errors = messages(compile(f, completed, tokensOnly, s));
+			}
+			else
+			{
+				AnalysisCache.Held lock = cache.lock(f); // one run at a time per file
+				try
+				{
+					String key = cache.key(f);
+
+					errors = cache.errors(f, key, outputs); // the errors of the last run, if nothing changed since
+					if (errors == null) // changed, or never analyzed
+					{
+						errors = messages(compile(f, completed, tokensOnly, s));
+						cache.record(f, key, errors, outputs);
+					}
+					else
+					{
+						s.bytes = f.length();
+						s.errors = errors.size();
+						event.cached = true;
+						monitor.filesCached.incrementAndGet();
+					}
+				}
+				finally
+				{
+					lock.close(); // lets the next run of this file, or of one sharing its lock, go on
+				}
+			}
+
+			for (String error : errors)
+				log.append(f.getPath()).append(':').append(error).append(System.lineSeparator());
+			
+			monitor.analyzed(s);
+			if (stats != null && !event.cached)
+				stats.add(s);
+		}
+		catch (Exception | StackOverflowError e) // nesting too deep counts as a failed file too, the rest of the batch goes on
+		{
+			log.append("ERROR! ").append(e).append(System.lineSeparator());
+			monitor.filesProcessed.incrementAndGet();
+			monitor.filesFailed.incrementAndGet();
+		}
+
+		if (event.shouldCommit())
+		{
+			event.file = s.file;
+			event.bytes = s.bytes;
+			event.tokens = s.tokens;
+			event.errors = s.errors;
+			event.written = s.written;
+			event.commit();
+		}
+
+		return log.toString();
+	}
+
+	// the text of each diagnostic, line:column: expected ... but found ...
+	public static List<String> messages(List<Diagnostic> diagnostics)
+	{
+		ArrayList<String> texts = new ArrayList<String>();
+		for (Diagnostic d : diagnostics)
+			texts.add(d.toString());
+
+		return texts;
+	}
+
+	// tokenize and compile f, writing the output files that are turned on, and return its syntax errors
+	// a syntax error doesn't stop the parse, it goes on after the statement or member the error is in
+	public static List<Diagnostic> compile(File f, File completed, File tokensOnly) throws Exception
+	{
+		return compile(f, completed, tokensOnly, new FileStats(f.getPath()));
+	}
+
+	// compile, filling s in with the file's numbers
+	public static List<Diagnostic> compile(File f, File completed, File tokensOnly, FileStats s) throws Exception
+	{
+		if (stats != null && !stream) // -stream keeps the single pass, timing its phases as they end
+			return compileMeasured(f, completed, tokensOnly, s);
 
 		// compiler object
 		CompilationEngine compiler; 
 
-		// for each jack file
-		for (File f : jackFiles)
+		s.start();
+		s.bytes = f.length();
+
+		// create tokenizer object, lexing as the parser goes unless the whole tree is kept
+		// lexed that way an ASCII file is read from the mapped bytes, only the last few tokens and the open nodes are kept,
+		// and the output goes through a fixed buffer - with -stream the names aren't interned either, so the heap
+		// needed doesn't depend on the size of the file, only on how deeply it nests (and on the syntax errors kept)
+		try (JackTokenizer tokenizer = new JackTokenizer(f.toPath(), regexLexer, !(buildTree || writeBinary), s))
 		{ 
-			// create tokenizer object
-			try (JackTokenizer tokenizer = new JackTokenizer(f.toPath()))
-			{ 
-				
-				String filename = f.getName().replaceAll("\\..*", ""); //to get filename without extension
-				//System.out.println(filename);
-				String dir = f.getParent().toString(); // get directory
-				//System.out.println(dir);
-
-				System.out.println(dir + "/" + filename);
-				
-				FileOutputStream fileOut = new FileOutputStream(dir + "/" + filename + "Completed.xml");
-				FileOutputStream fileTokens = new FileOutputStream(dir + "/" + filename + "TokensOnly.xml");
-				
+			if (stream)
+				tokenizer.tokens.internNames = false;
+
+			if (!writeParse) // tokens only, nothing is parsed
+			{
+				if (writeTokens)
+				{
+					try (FileOutputStream fileTokens = new FileOutputStream(tokensOnly))
+					{
+						tokenizer.writeTokens(fileTokens);
+						tokenizer.finishTokens();
+					}
+					s.written = tokensOnly.length();
+				}
+				s.tokens = tokenizer.tokenCount();
+				s.end(FileStats.TOKENS);
+				return new ArrayList<Diagnostic>();
+			}
+
+			// the streams are closed even if the parse throws, so a long running -daemon or -watch doesn't run out of files
+			try (FileOutputStream fileOut = new FileOutputStream(completed);
+					FileOutputStream fileTokens = writeTokens ? new FileOutputStream(tokensOnly) : null)
+			{
 				compiler = new CompilationEngine(tokenizer, fileOut, fileTokens); // create compiler object
-				compiler.compileClass(); // compile class
-				
+
+				if (buildTree || writeBinary)
+				{
+					ParseTree tree = compiler.compileClassTree(); // compile class into a tree, then write it
+					s.end(FileStats.PARSE);
+					if (writeBinary)
+					{
+						writeBinaryTree(tree, completed);
+						s.end(FileStats.BINARY);
+					}
+					compiler.writeXml(tree);
+					s.end(FileStats.XML);
+				}
+				else
+				{
+					compiler.compileClass(); // compile class
+				}
+
+				compiler.finishTokens(); // write the tokens the parser didn't reach
 			}
-			catch (Exception e)
+
+			s.tokens = tokenizer.tokenCount();
+			s.end(buildTree || writeBinary ? FileStats.TOKENS : FileStats.PARSE); // with a tree only the tokens the parser didn't reach are left
+			s.errors = compiler.diagnostics.size();
+			s.written = completed.length() + (writeTokens ? tokensOnly.length() : 0) + (writeBinary ? binaryFile(completed).length() : 0);
+			return compiler.diagnostics;
+		}
+		catch (Exception | Error e) // the outputs are cut short, leave none behind that would pass for a result
+		{
+			deleteOutputs(completed, tokensOnly);
+			throw e;
+		}
+	}
+
+	// compile with every phase run on its own and timed: the whole file is lexed, then the tokens file written,
+	// then the tree built and written as XML - the same output files as compile, made in separate passes
+	public static List<Diagnostic> compileMeasured(File f, File completed, File tokensOnly, FileStats s) throws Exception
+	{
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+
+		s.start();
+		s.bytes = f.length();
+
+		try (JackTokenizer tokenizer = new JackTokenizer(f.toPath(), regexLexer, false, s)) // ends read, comments and lex
+		{
+			s.tokens = tokenizer.tokenCount();
+
+			if (writeTokens)
 			{
-				System.out.println("ERROR!");
+				try (FileOutputStream fileTokens = new FileOutputStream(tokensOnly))
+				{
+					tokenizer.writeTokens(fileTokens);
+					tokenizer.finishTokens();
+				}
+				tokenizer.tokensOut = null; // all written, the parser has nothing left to write
 			}
+			s.end(FileStats.TOKENS);
 
+			if (writeParse)
+			{
+				try (FileOutputStream fileOut = new FileOutputStream(completed))
+				{
+					CompilationEngine compiler = new CompilationEngine(tokenizer, fileOut, null);
+					ParseTree tree = compiler.compileClassTree();
+					s.end(FileStats.PARSE);
+
+					if (writeBinary)
+					{
+						writeBinaryTree(tree, completed);
+						s.end(FileStats.BINARY);
+					}
+
+					compiler.writeXml(tree);
+					s.end(FileStats.XML);
+
+					diagnostics = compiler.diagnostics;
+				}
+			}
 		}
+		catch (Exception | Error e) // as in compile, no cut short outputs
+		{
+			deleteOutputs(completed, tokensOnly);
+			throw e;
+		}
+
+		s.errors = diagnostics.size();
+		s.written = (writeParse ? completed.length() + (writeBinary ? binaryFile(completed).length() : 0) : 0) + (writeTokens ? tokensOnly.length() : 0);
+		return diagnostics;
+	}
 
+	// remove the output files a run that failed part way was writing
+	public static void deleteOutputs(File completed, File tokensOnly)
+	{
+		if (writeParse)
+			completed.delete();
+		if (writeTokens)
+			tokensOnly.delete();
+		if (writeBinary)
+			binaryFile(completed).delete();
+	}
+
+	// the *Completed.bin file that goes with a *Completed.xml one
+	public static File binaryFile(File completed)
+	{
+		return new File(completed.getPath().replaceAll("\\.xml$", "") + ".bin");
+	}
+
+	// write tree as the *Completed.bin file next to completed
+	public static void writeBinaryTree(ParseTree tree, File completed) throws IOException
+	{
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(binaryFile(completed))))
+		{
+			new BinaryTreeWriter(tree).write(out);
+		}
 	}
 }
\ No newline at end of file
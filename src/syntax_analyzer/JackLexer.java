@@ -0,0 +1,170 @@
+package syntax_analyzer;
+
+import util.Keyword;
+
+// hand-written lexer - walks the source once, deciding what to do from a per-character class table
+// instead of trying every branch of the keyword|symbol|int|string|identifier regex at each position
+public class JackLexer
+{
+	// character classes
+	public static final byte OTHER = 0; // not part of any token, skipped (same as the regex lexer did)
+	public static final byte SPACE = 1; // whitespace, ends the current token
+	public static final byte LETTER = 2; // a-z, A-Z and _ , starts an identifier or keyword
+	public static final byte DIGIT = 3; // 0-9 , starts an integer constant
+	public static final byte SYMBOL = 4; // one of {}()[].,;+-*&|<>=~
+	public static final byte QUOTE = 5; // starts a string constant
+	public static final byte SLASH = 6; // the / symbol, or the start of a comment
+
+	// class of every ASCII character, anything above 127 is OTHER
+	public static final byte[] charClass = new byte[128];
+
+	static
+	{
+		for (char c = 'a'; c <= 'z'; c++)
+			charClass[c] = LETTER;
+		for (char c = 'A'; c <= 'Z'; c++)
+			charClass[c] = LETTER;
+		charClass['_'] = LETTER;
+
+		for (char c = '0'; c <= '9'; c++)
+			charClass[c] = DIGIT;
+
+		for (char c : "{}()[].,;+-*&|<>=~".toCharArray())
+			charClass[c] = SYMBOL;
+		charClass['/'] = SLASH;
+
+		charClass['"'] = QUOTE;
+
+		charClass[' '] = SPACE;
+		charClass['\t'] = SPACE;
+		charClass['\n'] = SPACE;
+		charClass['\r'] = SPACE;
+		charClass['\f'] = SPACE;
+	}
+
+	// return the class of character c
+	public static byte classOf(char c)
+	{
+		return c < 128 ? charClass[c] : OTHER;
+	}
+
+	// true if c can continue an identifier or keyword (letters, digits and _)
+	public static boolean isWordPart(char c)
+	{
+		byte cls = classOf(c);
+		return cls == LETTER || cls == DIGIT;
+	}
+
+	// offset of the line break ending a // comment whose text starts at i, or length if it is the last line
+	public static int skipLineComment(SourceText src, int i, int length)
+	{
+		while (i < length && src.charAt(i) != '\n')
+			i++;
+
+		return i;
+	}
+
+	// offset just after the */ ending a block comment whose text starts at i, or length if it is never closed
+	public static int skipBlockComment(SourceText src, int i, int length)
+	{
+		boolean star = false; // previous character was a *
+
+		while (i < length)
+		{
+			char c = src.charAt(i++);
+			if (star && c == '/')
+				return i;
+
+			star = c == '*';
+		}
+
+		return length;
+	}
+
+	// split src into tokens and add them to tokens
+	public static void tokenize(SourceText src, TokenBuffer tokens)
+	{
+		int length = src.length();
+		int i = 0;
+
+		while (i < length)
+			i = next(src, i, length, tokens);
+	}
+
+	// lex from offset i until one token has been added to tokens or the text ends
+	// return the offset just after that token
+	public static int next(SourceText src, int i, int length, TokenBuffer tokens)
+	{
+		while (i < length)
+		{
+			int start = i;
+
+			switch (classOf(src.charAt(i)))
+			{
+				// identifier or keyword - always read the whole word, so 'classify' stays one token
+				case LETTER:
+					i++;
+					while (i < length && isWordPart(src.charAt(i)))
+						i++;
+
+					int code = Keyword.code(src, start, i - start); // length and first letter leave one keyword to compare against
+					if (code >= 0)
+						tokens.addKeyword(start, i - start, code);
+					else
+						tokens.add(TokenBuffer.IDENTIFIER, start, i - start);
+					return i;
+
+				// integer constant - digits only, a following letter starts a new token
+				case DIGIT:
+					i++;
+					while (i < length && classOf(src.charAt(i)) == DIGIT)
+						i++;
+					tokens.add(TokenBuffer.INT_CONST, start, i - start);
+					return i;
+
+				// symbols are always a single character
+				case SYMBOL:
+					i++;
+					tokens.add(TokenBuffer.SYMBOL, start, 1);
+					return i;
+
+				// / is either division or the start of a comment, comments are skipped here in the same pass
+				case SLASH:
+					char next = i + 1 < length ? src.charAt(i + 1) : 0;
+
+					if (next == '/') // line comment
+					{
+						i = skipLineComment(src, i + 2, length);
+					}
+					else if (next == '*') // block comment, /** doc comments included
+					{
+						i = skipBlockComment(src, i + 2, length);
+					}
+					else
+					{
+						i++;
+						tokens.add(TokenBuffer.SYMBOL, start, 1);
+						return i;
+					}
+					break;
+
+				// string constant - up to the closing quote, kept with its quotes like the regex lexer
+				// one that is never closed runs to the end of the line, the parser reports it (see JackTokenizer.unterminated)
+				case QUOTE:
+					int end = i + 1;
+					while (end < length && src.charAt(end) != '"' && src.charAt(end) != '\r' && src.charAt(end) != '\n')
+						end++;
+
+					i = end < length && src.charAt(end) == '"' ? end + 1 : end;
+					tokens.add(TokenBuffer.STRING_CONST, start, i - start);
+					return i;
+
+				// whitespace and anything else is skipped
+				default:
+					i++;
+			}
+		}
+
+		return i;
+	}
+}
@@ -25,47 +25,154 @@ public class JackTokenizer implements AutoCloseable
 	// regex for integers
 	public String intRegex = "[0-9]+"; 
 	// regex for strings
-	public String stringRegex = "\"[^\"\n]*\""; 
+	public String stringRegex = "\"[^\"\r\n]*\"?"; // the closing quote is missing from one that runs to the end of the line
 	// regex for identifiers (any word character or starting with underscore)
 	public String identifierRegex = "[\\w_]+"; 
 
+	public static final int WINDOW = 16; // tokens kept when lexing lazily - the current one, the one before it and the lookahead
+
 	public BufferedReader input; 
-	public ArrayList<String> tokens = new ArrayList<String>(); // list of tokens
+	public TokenBuffer tokens; // the tokens of the file with their types, or only the last WINDOW of them when lexing lazily
 
 	public String tokenType;
 	public int currToken;
+	public int furthest; // highest token index peek() or consume() has reached, see IncrementalAnalyzer
+	public TokensWriter tokensOut; // tokens file written as consume() reaches each token, null if none
+
+	public int mask = -1; // token number i is kept at i & mask in tokens, -1 keeps every token at its own number
+	public int lexed; // tokens lexed so far, when lexing lazily
+	public int lexAt; // offset in the source the lazy lexer carries on from
 
 	
+	// tokenizer over tokens that were already lexed
+	public JackTokenizer(TokenBuffer t)
+	{
+		currToken = -1;
+		tokens = t;
+	}
+
 	// Constructing a JackTokenizer constructor, here the  path is the path of the file to be tokenized 
 	public JackTokenizer(Path path) 
+	{
+		this(path, false);
+	}
+
+	// regexLexer = true uses the original regex lexer instead of JackLexer, so the two can be compared on the same files
+	public JackTokenizer(Path path, boolean regexLexer) 
+	{
+		this(path, regexLexer, false);
+	}
+
+	// lazy = true lexes a token only when the parser first peeks at it, keeping the last WINDOW tokens in a ring
+	// so memory doesn't grow with the file - only for a single pass that never looks back (no ParseTree, no seek)
+	// the regex lexer always tokenizes the whole file first
+	public JackTokenizer(Path path, boolean regexLexer, boolean lazy)
+	{
+		this(path, regexLexer, lazy, null);
+	}
+
+	// stats, if not null, gets the end of the read, comments and lex phases - lazy lexing has no lex phase of its own
+	public JackTokenizer(Path path, boolean regexLexer, boolean lazy, FileStats stats)
 	{
 		currToken = -1;
 
-		String fileRaw = "";
-		String line = "";
+		if (regexLexer) // the original path: read line by line, strip comments, then match the regexes
+		{
+			String raw = readFile(path);
+			if (stats != null)
+				stats.end(FileStats.READ);
+
+			String commentless = removeComments(raw); // remove comments 
+			//System.out.println(commentless);
+			if (stats != null)
+				stats.end(FileStats.COMMENTS);
+
+			tokens = new TokenBuffer(SourceText.of(commentless.toCharArray(), commentless.length()), commentless.length() / 3);
+			regexTokenize(commentless);
+			if (stats != null)
+			{
+				stats.tokens = tokenCount();
+				stats.end(FileStats.LEX);
+			}
+			return;
+		}
+
+		SourceText source;
+
+		try {
+			// map the file, JackLexer reads it in place and skips comments itself
+			source = SourceText.map(path);
+		} 
+		catch (IOException e) 
+		{
+			System.out.println("ERROR");
+			source = SourceText.of(new char[0], 0);
+		}
+
+		if (stats != null)
+			stats.end(FileStats.READ);
+
+		if (lazy)
+		{
+			tokens = new TokenBuffer(source, WINDOW);
+			mask = WINDOW - 1;
+			return;
+		}
+
+		tokens = new TokenBuffer(source, source.length() / 3); // roughly one token every few characters
+		JackLexer.tokenize(source, tokens);
+		if (stats != null)
+		{
+			stats.tokens = tokenCount();
+			stats.end(FileStats.LEX); // JackLexer skips comments as it goes, so they are part of this phase
+		}
+	}
+
+	// write the tokens file to o, each token as consume() reaches it
+	public void writeTokens(OutputStream o)
+	{
+		tokensOut = new TokensWriter(tokens, o);
+		tokensOut.mask = mask;
+	}
+
+	// write the tokens nobody consumed and close the tokens file, if there is one
+	public void finishTokens()
+	{
+		if (tokensOut == null)
+			return;
+
+		while (has(tokensOut.written))
+			tokensOut.upTo(tokensOut.written);
+
+		tokensOut.finish();
+	}
+
+	// read the file for the regex lexer, exactly as it is so the tokens' offsets give the same lines and columns as JackLexer's
+	public String readFile(Path path)
+	{
+		StringBuilder fileRaw = new StringBuilder();
+		char[] buffer = new char[8192];
+		int n;
 
 		try {
 			// to create input stream, here path.toString() returns the path of the file as a string 
 			input = new BufferedReader(new FileReader(path.toString())); 
 
-			while ((line = input.readLine()) != null) // read line by line
-			{
-				//remove everything after (single-line comments)
-				line = line.replaceAll("//.*", ""); 
-				// add line to fileRaw, trim() removes leading and trailing whitespace
-				fileRaw += line.trim();  
-			}
-			// add last character to fileRaw, read() returns the next character from the input stream or -1 if the end of the stream has been reached.
-			fileRaw += String.valueOf((char) input.read()); 
+			while ((n = input.read(buffer)) > 0) // read a buffer full at a time
+				fileRaw.append(buffer, 0, n);
+			input.close();
 		} 
 		catch (IOException e) 
 		{
 			System.out.println("ERROR");
 		}
 
-		String commentless = removeBlockComments(fileRaw); // remove block comments 
-		//System.out.println(commentless);
+		return fileRaw.toString();
+	}
 
+	// the original lexer - one big alternation of all the token regexes
+	public void regexTokenize(String commentless)
+	{
 		//every possible token we are looking for
 		// compile regex pattern - make it into one statement and create a matcher object which is used to check whether the tokens in the file are present in the tokenPattern
 		Pattern tokenPattern = Pattern.compile(keywordRegex + "|" + symbolRegex + "|" + intRegex + "|" + stringRegex + "|" + identifierRegex); 
@@ -74,10 +181,30 @@ public class JackTokenizer implements AutoCloseable
 		//System.out.println(tokenPattern);
 		//System.out.println(tokenSpotter);
 		
+		// compiled once here, used to classify each token as it is found
+		Pattern keywordPattern = Pattern.compile(keywordRegex);
+		Pattern symbolPattern = Pattern.compile(symbolRegex);
+		Pattern stringPattern = Pattern.compile(stringRegex);
+		Pattern intPattern = Pattern.compile(intRegex);
+
 		// Find all of the tokens - as long as the patterns match with the tokens
 		while (tokenSpotter.find())  // find() returns true if the regular expression matches the string, otherwise it returns false.
 		{
-			tokens.add(tokenSpotter.group()); // add token to list of tokens
+			String token = tokenSpotter.group();
+			byte type;
+
+			if (keywordPattern.matcher(token).matches())
+				type = TokenBuffer.KEYWORD;
+			else if (symbolPattern.matcher(token).matches())
+				type = TokenBuffer.SYMBOL;
+			else if (stringPattern.matcher(token).matches())
+				type = TokenBuffer.STRING_CONST;
+			else if (intPattern.matcher(token).matches())
+				type = TokenBuffer.INT_CONST;
+			else
+				type = TokenBuffer.IDENTIFIER;
+
+			tokens.add(type, tokenSpotter.start(), token.length()); // add token to list of tokens
 		}
 
 	
@@ -87,6 +214,7 @@ public class JackTokenizer implements AutoCloseable
 	public void reset() 
 	{
 		currToken = -1;
+		furthest = -1;
 	}
 	
 
@@ -99,91 +227,96 @@ public class JackTokenizer implements AutoCloseable
 	// return true if there are more tokens
 	public boolean hasMoreTokens() 
 	{
-		 // return true if currToken is less than size of tokens - 1
-		return currToken < tokens.size() - 1;
+		return has(currToken + 1);
 	}
-	
 
-	public void advance() // advance to next token
+	// true if the file has a token number index, lexing up to it when lexing lazily
+	public boolean has(int index)
 	{
-		// if there are more tokens
-		if (hasMoreTokens()) 		
-			currToken++;
+		if (mask == -1) // every token was lexed up front
+			return index < tokens.size;
 
-		// get token at currToken
-		String token = tokens.get(currToken); 		
+		while (lexed <= index && lexAt < tokens.source.length())
+			lexNext();
 
-		// if token is a keyword
-		if (token.matches(keywordRegex))		
-		 {
-			// set tokenType to KEYWORD
-			tokenType = TokenType.KEYWORD;	
-			return;
-		}
+		return index < lexed;
+	}
 
-		if (token.matches(symbolRegex)) 
-		{
-			tokenType = TokenType.SYMBOL;
-			return;
-		}
+	// number of tokens lexed so far, every token of the file unless lexing lazily
+	public int tokenCount()
+	{
+		return mask == -1 ? tokens.size : lexed;
+	}
 
-		if (token.matches(stringRegex)) 
-		{
-			tokenType = TokenType.STRING_CONST;
-			return;
-		}
+	// lex one more token into the ring, over the one WINDOW tokens back
+	private void lexNext()
+	{
+		int slot = lexed & mask;
+		tokens.size = slot; // the lexer adds at size
+		tokens.text[slot] = null; // text of the token that was here
 
-		if (token.matches(intRegex)) 
-		{
-			tokenType = TokenType.INT_CONST;
-			return;
-		}
+		lexAt = JackLexer.next(tokens.source, lexAt, tokens.source.length(), tokens);
 
-		if (token.matches(identifierRegex))
-		{
-			tokenType = TokenType.IDENTIFIER;
-			return;
-		}
+		if (tokens.size > slot) // a token was added, not just space and comments up to the end
+			lexed++;
+	}
 
+	// where token number index is kept in tokens
+	public int slot(int index)
+	{
+		return index < 0 ? index : index & mask; // -1 (no token yet) stays out of range
 	}
 
-	public void previousToken() // return to previous token
+	// number of the token k places after the current one, the tokenizer doesn't move - k must be less than WINDOW - 1
+	// past the end of the file there is no such token, its type code is -1
+	public int peek(int k)
 	{
-		if (currToken > 0)	// if currToken is greater than 0
-			currToken--;	// decrement currToken
-		
-		// get token at currToken
-		String token = tokens.get(currToken); 
+		int index = currToken + k;
 
-		if (token.matches(keywordRegex)) 
-		{
-			tokenType = TokenType.KEYWORD;
-			return;
-		}
+		// looking past the end counts as looking at the last token, whatever is added after it concerns this part
+		int seen = has(index) ? index : tokenCount() - 1;
+		if (seen > furthest)
+			furthest = seen;
 
-		if (token.matches(symbolRegex))
-		{
-			tokenType = TokenType.SYMBOL;
-			return;
-		}
+		return index;
+	}
 
-		if (token.matches(stringRegex)) 
-		{
-			tokenType = TokenType.STRING_CONST;
-			return;
-		}
+	// move to the next token and return its number, at the end of the file the last token stays current
+	public int consume()
+	{
+		if (hasMoreTokens())
+			currToken++;
 
-		if (token.matches(intRegex)) 
-		{
-			tokenType = TokenType.INT_CONST;
-			return;
-		}
+		if (currToken > furthest)
+			furthest = currToken;
 
-		if (token.matches(identifierRegex)) 
-		{
-			tokenType = TokenType.IDENTIFIER;
-			return;
-		}
+		if (tokensOut != null)
+			tokensOut.upTo(currToken);
+
+		// type was decided by the lexer, just look up its name
+		tokenType = TokenBuffer.typeNames[tokens.type[slot(currToken)]];
+		return currToken;
+	}
+
+	public void advance() // advance to next token
+	{
+		consume();
+	}
+
+	// make token number index the current token
+	public void seek(int index)
+	{
+		currToken = index;
+		furthest = index;
+		tokenType = index >= 0 ? TokenBuffer.typeNames[tokens.type[slot(currToken)]] : null; // -1 is before the first token
+	}
+
+	public void previousToken() // return to previous token
+	{
+		if (currToken > 0)	// if currToken is greater than 0
+			currToken--;	// decrement currToken
+		
+		tokenType = TokenBuffer.typeNames[tokens.type[slot(currToken)]];
 	}
 
 	// return tokenType
@@ -192,34 +325,78 @@ public class JackTokenizer implements AutoCloseable
 		return tokenType;
 	}
 
+	// type code of the current token, the ordinal of its TokenType
+	public int typeCode()
+	{
+		return typeCode(currToken);
+	}
+
+	// type code of token number index, one the tokenizer still has (the current one or one peek gave), -1 past the end
+	public int typeCode(int index)
+	{
+		return has(index) ? tokens.type[slot(index)] : -1;
+	}
+
+	// TokenType of the current token
+	public TokenType type()
+	{
+		return TokenType.of(typeCode());
+	}
+
+	// pool id of the current token, the same for the same name in every file of the run, -1 for constants
+	public int tokenId()
+	{
+		return tokens.id[slot(currToken)];
+	}
+
 	//to return keyword
     public String keyword() 	
 	{
-		String token = tokens.get(currToken);	// get token at currToken
-
-		if (tokenType == TokenType.KEYWORD) // if tokenType is KEYWORD
+		if (typeCode() == TokenBuffer.KEYWORD) // if tokenType is KEYWORD
 		{	
-			for (String k : Keyword.values()) // for each keyword in Keyword enum
-			{	
-				if (token.equalsIgnoreCase(k.toString()))// if token is equal to keyword
-				{ 	
-					return k;// return keyword
-				}
-			}
+			return Keyword.of(tokenId()).word; // the lexer only marks exact keywords as KEYWORD
 		}
 
 		return "NOT A KEYWORD!";	// return NOTKEYWORD if token is not a keyword
 
 	}
 
+	// Keyword code of the current token, decided once by the lexer, -1 if it is not a keyword
+	public int keywordCode()
+	{
+		return keywordCode(currToken);
+	}
+
+	// Keyword code of token number index
+	public int keywordCode(int index)
+	{
+		if (typeCode(index) == TokenBuffer.KEYWORD)
+			return tokens.id[slot(index)];
+
+		return -1;
+	}
+
+	// Symbol code of the current token, -1 if it is not a symbol
+	public int symbolCode()
+	{
+		return symbolCode(currToken);
+	}
+
+	// Symbol code of token number index
+	public int symbolCode(int index)
+	{
+		if (typeCode(index) == TokenBuffer.SYMBOL)
+			return tokens.id[slot(index)] - InternPool.FIRST_SYMBOL; // symbols come right after the keywords in the pool
+
+		return -1;
+	}
+
     //to return symbol
     public String symbol() 
     {
-		String token = tokens.get(currToken);
-
-		if (tokenType == TokenType.SYMBOL) 
+		if (typeCode() == TokenBuffer.SYMBOL) 
 		{
-			return token;
+			return tokens.text(slot(currToken));
 		}
 
 		return "NOT A SYMBOL!";
@@ -227,11 +404,10 @@ public class JackTokenizer implements AutoCloseable
 
      //to return identifier 
 	public String identifier() 
-	{			String token = tokens.get(currToken);
-
-		if (tokenType == TokenType.IDENTIFIER) 
+	{
+		if (typeCode() == TokenBuffer.IDENTIFIER) 
 		{
-			return token;
+			return tokens.text(slot(currToken));
 		}
 
 		return "NOT AN IDENTIFIER!";
@@ -240,66 +416,101 @@ public class JackTokenizer implements AutoCloseable
 	// if token is an int, return intVal
 	public int intVal()
 	{	
-		String token = tokens.get(currToken);
+		return intVal(currToken);
+	}
 
-		if (tokenType == TokenType.INT_CONST)
+	// value of token number index if it is an int, TokenBuffer.TOO_BIG if it doesn't fit in one, otherwise -1
+	public int intVal(int index)
+	{
+		if (typeCode(index) == TokenBuffer.INT_CONST)
 		{
-			return Integer.parseInt(token);
+			return tokens.intValue[slot(index)]; // parsed while lexing
 		}
 
 		return -1;
 	}
 
+	// true if token number index is a string constant with no closing quote on its line
+	public boolean unterminated(int index)
+	{
+		if (typeCode(index) != TokenBuffer.STRING_CONST)
+			return false;
+
+		int i = slot(index);
+		return tokens.length[i] < 2 || tokens.source.charAt(tokens.start[i] + tokens.length[i] - 1) != '"';
+	}
+
+	// the current int constant as the outputs write it
+	public String intText()
+	{
+		return tokens.intText(slot(currToken));
+	}
+
 	// if token is a string, return stringVal
 	public String stringVal()
 	{	
-		String token = tokens.get(currToken);
-
-		if (tokenType == TokenType.STRING_CONST) 
+		if (typeCode() == TokenBuffer.STRING_CONST) 
 		{
-			return token;
+			return tokens.text(slot(currToken));
 		}
 
 		return "NOT A STRINGVAL!";
 	}
 	
 	
-	//to remove block comments
-	public String removeBlockComments(String s) 
+	// to remove comments - // and /* */ (doc comments included) in one forward pass
+	// string constants are copied untouched, so a // inside one is not taken for a comment
+	// a comment becomes as many spaces, its line breaks kept, so every token stays at its offset in the file
+	public String removeComments(String s) 
 	{
-		/** if string does not contain /**
-		    return string   */
-		if (!s.contains("/**")) 
-			return s;
+		char[] chars = s.toCharArray();
+		SourceText src = SourceText.of(chars, chars.length);
+		StringBuilder out = new StringBuilder(chars.length);
 
-		String out = "";
-		boolean commentMode = false;
-		
-		for (int i = 0; i < s.length() - 1; i++) // for each character in string
+		int length = chars.length;
+		int i = 0;
+
+		while (i < length)
 		{
-			String commentTest = s.substring(i, i + 2); // get substring of string from i to i + 2
-			if (!commentMode) // if commentMode is false
+			char c = chars[i];
+			char next = i + 1 < length ? chars[i + 1] : 0;
+
+			if (c == '/' && next == '/') // line comment, the line break after it is kept
+			{
+				int start = i;
+				i = JackLexer.skipLineComment(src, i + 2, length);
+				blank(out, chars, start, i);
+			}
+			else if (c == '/' && next == '*') // block comment, which also keeps the tokens around it apart
+			{
+				int start = i;
+				i = JackLexer.skipBlockComment(src, i + 2, length);
+				blank(out, chars, start, i);
+			}
+			else if (c == '"') // string constant, copied up to the closing quote or the end of the line
 			{
-				if (commentTest.equals("/*")) // if commentTest is /*
-				{
-					commentMode = true;
-				} 
-				else
-				 {
-					out += s.substring(i, i + 1); // add character to out 
-				}
+				int start = i++;
+				while (i < length && chars[i] != '"' && chars[i] != '\r' && chars[i] != '\n')
+					i++;
+				if (i < length && chars[i] == '"')
+					i++;
+				out.append(chars, start, i - start);
 			}
-			 else if (commentMode && commentTest.equals("*/")) // if commentMode is true and commentTest is */
-			 {
-				commentMode = false;
-				// Skip over the comment notation
+			else
+			{
+				out.append(c);
 				i++;
 			}
-
 		}
 
-		return out;
+		return out.toString();
+	}
 
+	// append a space for each of chars[from..to) , and its line breaks as they are
+	private static void blank(StringBuilder out, char[] chars, int from, int to)
+	{
+		for (int k = from; k < to; k++)
+			out.append(chars[k] == '\n' || chars[k] == '\r' ? chars[k] : ' ');
 	}
 
 	@Override 
@@ -0,0 +1,41 @@
+package syntax_analyzer;
+
+// line and column of offsets in a source text
+// line breaks are counted on from the last offset asked for, so asking in order reads the text once
+public class LineCounter
+{
+	public SourceText source;
+	public int line = 1; // line of the last offset located, from 1
+	public int column = 1; // its column, from 1
+
+	private int at; // offset the count has reached
+	private int lineStart; // offset of the first character of the line at is on
+
+	public LineCounter(SourceText s)
+	{
+		source = s;
+	}
+
+	// set line and column to where offset is
+	public void locate(int offset)
+	{
+		if (offset < at) // behind the last one, count again from the start
+		{
+			at = 0;
+			line = 1;
+			lineStart = 0;
+		}
+
+		while (at < offset)
+		{
+			if (source.charAt(at) == '\n')
+			{
+				line++;
+				lineStart = at + 1;
+			}
+			at++;
+		}
+
+		column = offset - lineStart + 1;
+	}
+}
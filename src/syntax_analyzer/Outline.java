@@ -0,0 +1,87 @@
+package syntax_analyzer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import util.NodeKind;
+import util.TokenType;
+
+// prints each class with its subroutines and how many statements each has, straight from the parser's callbacks
+// - no XML and no tree, the tokens are lexed lazily, so it runs at the speed of the parser in constant memory
+//   java syntax_analyzer.Outline (file.jack | directory)...
+public class Outline extends ParseAdapter
+{
+	public StringBuilder out = new StringBuilder();
+
+	private int[] open = new int[32]; // NodeKind of each open node
+	private int depth;
+	private int tokensInNode; // tokens directly inside the innermost class or subroutineDec node so far
+	private String subroutine; // name of the subroutine being parsed
+	private int statements; // statements in it so far
+
+	public static void main(String[] args) throws Exception
+	{
+		StringBuilder log = new StringBuilder();
+		ArrayList<File> files = JackAnalyzer.collect(Arrays.asList(args), log);
+		System.out.print(log);
+
+		for (File f : files)
+		{
+			Outline outline = new Outline();
+
+			try (JackTokenizer tokenizer = new JackTokenizer(f.toPath(), false, true))
+			{
+				CompilationEngine engine = new CompilationEngine(tokenizer, outline);
+				engine.diagnostics = null;
+				engine.compileClass();
+			}
+
+			System.out.print(outline.out);
+		}
+	}
+
+	public void startNode(int kind)
+	{
+		if (depth == open.length)
+			open = Arrays.copyOf(open, depth * 2);
+		open[depth++] = kind;
+
+		if (kind == NodeKind.CLASS || kind == NodeKind.SUBROUTINE_DEC)
+			tokensInNode = 0;
+
+		if (kind == NodeKind.LET_STATEMENT || kind == NodeKind.IF_STATEMENT || kind == NodeKind.WHILE_STATEMENT
+				|| kind == NodeKind.DO_STATEMENT || kind == NodeKind.RETURN_STATEMENT)
+			statements++;
+	}
+
+	public void endNode(int kind)
+	{
+		if (depth > 0)
+			depth--;
+
+		if (kind == NodeKind.SUBROUTINE_DEC && subroutine != null)
+		{
+			out.append('\t').append(subroutine).append(" (").append(statements).append(" statements)").append(System.lineSeparator());
+			subroutine = null;
+		}
+	}
+
+	public void token(int index, TokenType type, String text)
+	{
+		if (depth == 0)
+			return;
+
+		int parent = open[depth - 1];
+
+		if (parent == NodeKind.CLASS && tokensInNode++ == 1) // class className
+		{
+			out.append("class ").append(text).append(System.lineSeparator());
+		}
+		else if (parent == NodeKind.SUBROUTINE_DEC && tokensInNode++ == 2) // kind type subroutineName
+		{
+			subroutine = text;
+			statements = 0;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package syntax_analyzer;
+
+import util.TokenType;
+
+// ParseListener that ignores everything, to extend with only the callbacks a consumer needs
+public class ParseAdapter implements ParseListener
+{
+	public void startNode(int kind)
+	{
+	}
+
+	public void endNode(int kind)
+	{
+	}
+
+	public void token(int index, TokenType type, String text)
+	{
+	}
+
+	public void error(int index, Diagnostic d)
+	{
+	}
+
+	public void finish()
+	{
+	}
+}
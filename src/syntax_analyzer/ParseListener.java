@@ -0,0 +1,24 @@
+package syntax_analyzer;
+
+import util.TokenType;
+
+// gets the parse of a class as CompilationEngine recognizes it, in source order, with nothing kept in between
+// XmlWriter writes it out and ParseTree stores it, a consumer that only counts or collects something can
+// implement just that (extend ParseAdapter) and run at the speed of the parser
+public interface ParseListener
+{
+	// a grammar rule begins, kind is a NodeKind
+	void startNode(int kind);
+
+	// the grammar rule started last ends
+	void endNode(int kind);
+
+	// token number index, as the grammar took it - text is what the XML shows for it
+	void token(int index, TokenType type, String text);
+
+	// token number index is not what the grammar expected there, d says what was and where
+	void error(int index, Diagnostic d);
+
+	// the class is parsed, nothing more comes
+	void finish();
+}
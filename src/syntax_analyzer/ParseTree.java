@@ -0,0 +1,221 @@
+package syntax_analyzer;
+
+import java.util.Arrays;
+
+import util.NodeKind;
+import util.TokenType;
+
+// parse tree of one file, kept as flat arrays indexed by node number instead of one object per node
+// node 0 is the first top level node, the class node
+// children are linked through firstChild / nextSibling
+public class ParseTree implements ParseListener
+{
+	public TokenBuffer tokens; // the tokens the leaves point to
+	public int base; // token[] holds token numbers relative to this one, so a tree can move with its tokens
+	public int size; // number of nodes
+
+	public byte[] kind; // NodeKind of each node
+	public int[] token; // for TOKEN leaves, index of the token in tokens
+	public byte[] tokenType; // for TOKEN leaves, the type it was written as (TokenBuffer type code)
+	public int[] firstChild; // first child of each node, -1 if none
+	public int[] nextSibling; // next node with the same parent, -1 if none
+	public String[] value; // text written for a token leaf when it is not simply its token's text, what was expected for an error leaf
+
+	// nodes still being built
+	private int[] open = new int[32];
+	private int[] lastChild = new int[32];
+	private int depth;
+	private int lastTop = -1; // last node added outside of any node
+
+	public ParseTree(TokenBuffer t)
+	{
+		this(t, t.size * 2); // about two nodes per token
+	}
+
+	// tree for part of the tokens, starting at token number first
+	public ParseTree(TokenBuffer t, int first, int capacity)
+	{
+		this(t, capacity);
+		base = first;
+	}
+
+	public ParseTree(TokenBuffer t, int capacity)
+	{
+		tokens = t;
+
+		capacity = Math.max(capacity, 16);
+		kind = new byte[capacity];
+		token = new int[capacity];
+		tokenType = new byte[capacity];
+		firstChild = new int[capacity];
+		nextSibling = new int[capacity];
+		value = new String[capacity];
+	}
+
+	// open a new node of the given kind under the current one
+	public void startNode(int k)
+	{
+		int node = addNode(k);
+
+		if (depth == open.length)
+		{
+			open = Arrays.copyOf(open, depth * 2);
+			lastChild = Arrays.copyOf(lastChild, depth * 2);
+		}
+
+		open[depth] = node;
+		lastChild[depth] = -1;
+		depth++;
+	}
+
+	// close the current node
+	public void endNode()
+	{
+		if (depth > 0) // a tree for part of a file may end nodes it didn't start
+			depth--;
+	}
+
+	// add a leaf for token number index, written as type t with text v
+	public void token(int index, byte t, String v)
+	{
+		int node = addNode(NodeKind.TOKEN);
+		token[node] = index - base;
+		tokenType[node] = t;
+
+		// only keep the text if it can't be read back from the token
+		boolean same = index >= 0 && tokens.type[index] == t && (t == TokenBuffer.INT_CONST || tokens.textEquals(index, v));
+		if (!same)
+			value[node] = v;
+	}
+
+	// add an error leaf at token number index (the one found instead, tokens.size for the end of the file)
+	// expected is what the grammar wanted there
+	public void error(int index, String expected)
+	{
+		int node = addNode(NodeKind.ERROR);
+		token[node] = index - base;
+		value[node] = expected;
+	}
+
+	// as a ParseListener, the parser builds the tree
+
+	public void endNode(int kind)
+	{
+		endNode();
+	}
+
+	public void token(int index, TokenType type, String text)
+	{
+		token(index, (byte) type.ordinal(), text);
+	}
+
+	public void error(int index, Diagnostic d)
+	{
+		error(index, d.expected);
+	}
+
+	public void finish()
+	{
+	}
+
+	// text of a leaf as it appears in the XML
+	public String text(int node)
+	{
+		if (value[node] != null)
+			return value[node];
+
+		int i = base + token[node];
+		if (tokenType[node] == TokenBuffer.INT_CONST)
+			return tokens.intText(i);
+
+		return tokens.text(i);
+	}
+
+	// walk the tree in document order, calling v for every node
+	public void accept(ParseTreeVisitor v)
+	{
+		if (size == 0)
+			return;
+
+		int[] stack = new int[32]; // nodes whose end still has to be visited
+		int top = 0;
+		int node = 0;
+
+		while (true)
+		{
+			if (kind[node] == NodeKind.TOKEN)
+			{
+				v.token(this, node);
+			}
+			else if (kind[node] == NodeKind.ERROR)
+			{
+				v.error(this, node);
+			}
+			else
+			{
+				v.startNode(this, node);
+
+				if (firstChild[node] >= 0) // go down
+				{
+					if (top == stack.length)
+						stack = Arrays.copyOf(stack, top * 2);
+					stack[top++] = node;
+					node = firstChild[node];
+					continue;
+				}
+
+				v.endNode(this, node);
+			}
+
+			// go to the next sibling, closing the parents that have none left
+			while (nextSibling[node] < 0)
+			{
+				if (top == 0)
+					return;
+
+				node = stack[--top];
+				v.endNode(this, node);
+			}
+			node = nextSibling[node];
+		}
+	}
+
+	// append a node of kind k to the current node's children
+	private int addNode(int k)
+	{
+		if (size == kind.length)
+		{
+			int capacity = size * 2;
+			kind = Arrays.copyOf(kind, capacity);
+			token = Arrays.copyOf(token, capacity);
+			tokenType = Arrays.copyOf(tokenType, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			value = Arrays.copyOf(value, capacity);
+		}
+
+		int node = size++;
+		kind[node] = (byte) k;
+		firstChild[node] = -1;
+		nextSibling[node] = -1;
+
+		if (depth > 0) // link it after the last child of the open node
+		{
+			if (lastChild[depth - 1] < 0)
+				firstChild[open[depth - 1]] = node;
+			else
+				nextSibling[lastChild[depth - 1]] = node;
+
+			lastChild[depth - 1] = node;
+		}
+		else // top level, link it after the previous top level node
+		{
+			if (lastTop >= 0)
+				nextSibling[lastTop] = node;
+
+			lastTop = node;
+		}
+
+		return node;
+	}
+}
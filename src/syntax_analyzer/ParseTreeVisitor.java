@@ -0,0 +1,17 @@
+package syntax_analyzer;
+
+// called by ParseTree.accept for every node, in the order the nodes appear in the source
+public interface ParseTreeVisitor
+{
+	// a grammar rule node, before its children
+	void startNode(ParseTree tree, int node);
+
+	// a grammar rule node, after its children
+	void endNode(ParseTree tree, int node);
+
+	// a token leaf
+	void token(ParseTree tree, int node);
+
+	// an error leaf, where the grammar expected something else
+	void error(ParseTree tree, int node);
+}
@@ -0,0 +1,34 @@
+package syntax_analyzer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event for one phase of analyzing a file, committed by FileStats.end
+@Name("syntax_analyzer.Phase")
+@Label("Analysis Phase")
+@Category("Jack Analyzer")
+@StackTrace(false)
+@Description("One phase of analyzing a .jack file, see FileStats for the phases")
+public class PhaseEvent extends jdk.jfr.Event
+{
+	@Label("File")
+	public String file;
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Size")
+	@DataAmount
+	public long bytes; // of the file
+
+	@Label("Tokens")
+	public int tokens; // lexed by the end of the phase, all of them unless lexing lazily
+
+	@Label("Allocated")
+	@DataAmount
+	public long allocated;
+}
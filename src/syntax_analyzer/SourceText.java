@@ -0,0 +1,115 @@
+package syntax_analyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// the text a file is lexed from - either plain chars, or the raw bytes of a file that is pure ASCII
+public abstract class SourceText implements CharSequence
+{
+	// number of characters
+	public abstract int length();
+
+	// character at offset i
+	public abstract char charAt(int i);
+
+	// the len characters starting at offset start, as a String
+	public abstract String text(int start, int len);
+
+	public CharSequence subSequence(int start, int end)
+	{
+		return text(start, end - start);
+	}
+
+	// text held in a char array
+	public static SourceText of(char[] chars, int length)
+	{
+		return new Chars(chars, length);
+	}
+
+	// map the file at path into memory
+	// a pure ASCII file is lexed straight from the mapped bytes, anything else is decoded to chars first
+	public static SourceText map(Path path) throws IOException
+	{
+		ByteBuffer bytes;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after the channel is closed
+		}
+
+		int length = bytes.limit();
+		for (int i = 0; i < length; i++)
+		{
+			if (bytes.get(i) < 0) // a byte above 127 , not ASCII
+			{
+				// decode with the same charset FileReader used
+				CharBuffer chars = Charset.defaultCharset().decode(bytes);
+				return new Chars(chars.array(), chars.limit());
+			}
+		}
+
+		return new Bytes(bytes);
+	}
+
+	// char array source
+	public static class Chars extends SourceText
+	{
+		public final char[] chars;
+		public final int length;
+
+		public Chars(char[] chars, int length)
+		{
+			this.chars = chars;
+			this.length = length;
+		}
+
+		public int length()
+		{
+			return length;
+		}
+
+		public char charAt(int i)
+		{
+			return chars[i];
+		}
+
+		public String text(int start, int len)
+		{
+			return new String(chars, start, len);
+		}
+	}
+
+	// ASCII bytes, one byte per character, never decoded as a whole
+	public static class Bytes extends SourceText
+	{
+		public final ByteBuffer bytes;
+
+		public Bytes(ByteBuffer bytes)
+		{
+			this.bytes = bytes;
+		}
+
+		public int length()
+		{
+			return bytes.limit();
+		}
+
+		public char charAt(int i)
+		{
+			return (char) bytes.get(i);
+		}
+
+		public String text(int start, int len)
+		{
+			byte[] b = new byte[len];
+			bytes.get(start, b);
+			return new String(b, StandardCharsets.ISO_8859_1); // ASCII is stored one byte per char, no widening
+		}
+	}
+}
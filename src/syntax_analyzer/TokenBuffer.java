@@ -0,0 +1,189 @@
+package syntax_analyzer;
+
+import java.util.Arrays;
+
+import util.TokenType;
+
+// tokens of one file, stored as parallel primitive arrays that point into the source text
+// the type of each token is decided once by the lexer, the tokenizer only looks it up afterwards
+public class TokenBuffer
+{
+	// token type codes, stored in type[] - the ordinals of TokenType
+	public static final byte KEYWORD = 0;
+	public static final byte SYMBOL = 1;
+	public static final byte IDENTIFIER = 2;
+	public static final byte INT_CONST = 3;
+	public static final byte STRING_CONST = 4;
+
+	public static final int TOO_BIG = -2; // intValue of a constant that doesn't fit in an int, the parser reports it
+
+	// TokenType name of every type code
+	public static final String[] typeNames = { TokenType.KEYWORD.tag, TokenType.SYMBOL.tag, TokenType.IDENTIFIER.tag, TokenType.INT_CONST.tag, TokenType.STRING_CONST.tag };
+
+	public SourceText source; // the text the tokens point into
+	public InternPool pool = InternPool.shared; // where keywords, symbols and identifiers get their ids
+	// false gives identifiers id -1 and cuts their text out of the source like a constant's, so the pool doesn't grow
+	// with the number of different names in a file - for JackAnalyzer -stream
+	public boolean internNames = true;
+	public int size; // number of tokens
+
+	public byte[] type; // type code of each token
+	public int[] start; // offset of the first character of each token in source
+	public int[] length; // number of characters in each token
+	public int[] intValue; // value of INT_CONST tokens, parsed while lexing
+	public int[] id; // pool id of KEYWORD, SYMBOL and IDENTIFIER tokens, -1 for constants and uninterned names - for a keyword this is its Keyword code
+	public String[] text; // text of constants, created the first time it is asked for
+
+	public TokenBuffer(SourceText source, int capacity)
+	{
+		this.source = source;
+		capacity = Math.max(capacity, 16);
+
+		type = new byte[capacity];
+		start = new int[capacity];
+		length = new int[capacity];
+		intValue = new int[capacity];
+		id = new int[capacity];
+		text = new String[capacity];
+	}
+
+	// add a token of type t covering source[s..s+len)
+	public void add(byte t, int s, int len)
+	{
+		if (size == type.length) // full, double the arrays
+			grow(size * 2);
+
+		type[size] = t;
+		start[size] = s;
+		length[size] = len;
+
+		if (t == INT_CONST)
+			intValue[size] = parseInt(s, len);
+
+		// names are interned, so the same name in any file of the run is the same id and the same String
+		if (t == INT_CONST || t == STRING_CONST || (t == IDENTIFIER && !internNames))
+			id[size] = -1;
+		else
+			id[size] = pool.intern(source, s, len);
+
+		size++;
+	}
+
+	// add a keyword the lexer already recognised, code is its Keyword code
+	// the pool gives every keyword its code as id, so there is nothing to look up
+	public void addKeyword(int s, int len, int code)
+	{
+		if (size == type.length)
+			grow(size * 2);
+
+		type[size] = KEYWORD;
+		start[size] = s;
+		length[size] = len;
+		id[size] = code;
+		size++;
+	}
+
+	// replace tokens [from, to) with all the tokens of with, which must point into the same source
+	// the tokens after them are moved by shift characters, the source having grown or shrunk by that much
+	public void replace(int from, int to, TokenBuffer with, int shift)
+	{
+		int added = with.size;
+		int after = size - to; // tokens kept after the replaced ones
+		int newSize = from + added + after;
+
+		if (newSize > type.length)
+			grow(Math.max(newSize, type.length * 2));
+
+		// move the tail into place
+		System.arraycopy(type, to, type, from + added, after);
+		System.arraycopy(start, to, start, from + added, after);
+		System.arraycopy(length, to, length, from + added, after);
+		System.arraycopy(intValue, to, intValue, from + added, after);
+		System.arraycopy(id, to, id, from + added, after);
+		System.arraycopy(text, to, text, from + added, after);
+
+		for (int i = from + added; i < newSize; i++)
+			start[i] += shift;
+
+		// and copy the new tokens in
+		System.arraycopy(with.type, 0, type, from, added);
+		System.arraycopy(with.start, 0, start, from, added);
+		System.arraycopy(with.length, 0, length, from, added);
+		System.arraycopy(with.intValue, 0, intValue, from, added);
+		System.arraycopy(with.id, 0, id, from, added);
+		System.arraycopy(with.text, 0, text, from, added);
+
+		for (int i = newSize; i < size; i++) // drop references to texts past the end
+			text[i] = null;
+
+		size = newSize;
+		source = with.source;
+	}
+
+	// text of token i
+	public String text(int i)
+	{
+		if (id[i] >= 0) // a name, kept once in the pool
+			return pool.text(id[i]);
+
+		String s = text[i];
+
+		if (s == null) // first time, cut it out of the source once and keep it
+		{
+			s = source.text(start[i], length[i]);
+			text[i] = s;
+		}
+
+		return s;
+	}
+
+	// true if token i is exactly the characters of s
+	public boolean textEquals(int i, String s)
+	{
+		int len = length[i];
+		if (len != s.length())
+			return false;
+
+		int off = start[i];
+		for (int k = 0; k < len; k++)
+		{
+			if (source.charAt(off + k) != s.charAt(k))
+				return false;
+		}
+
+		return true;
+	}
+
+	// text of INT_CONST token i as the outputs write it, its value - or its digits as they are if it is TOO_BIG
+	public String intText(int i)
+	{
+		return intValue[i] == TOO_BIG ? source.text(start[i], length[i]) : String.valueOf(intValue[i]);
+	}
+
+	// parse the digits source[s..s+len) , TOO_BIG if they don't fit in an int - lexing goes on either way
+	private int parseInt(int s, int len)
+	{
+		int value = 0;
+
+		for (int k = s; k < s + len; k++)
+		{
+			int digit = source.charAt(k) - '0';
+			if (value > (Integer.MAX_VALUE - digit) / 10)
+				return TOO_BIG;
+
+			value = value * 10 + digit;
+		}
+
+		return value;
+	}
+
+	private void grow(int capacity)
+	{
+		type = Arrays.copyOf(type, capacity);
+		start = Arrays.copyOf(start, capacity);
+		length = Arrays.copyOf(length, capacity);
+		intValue = Arrays.copyOf(intValue, capacity);
+		id = Arrays.copyOf(id, capacity);
+		text = Arrays.copyOf(text, capacity);
+	}
+}
@@ -0,0 +1,83 @@
+package syntax_analyzer;
+
+import java.io.OutputStream;
+
+// writes the *TokensOnly.xml file straight from a TokenBuffer
+// the tokenizer calls upTo as the parser reaches each token, so both files come out of the same pass,
+// and JackTokenizer.finishTokens writes whatever the parser never looked at before calling finish
+// like XmlWriter it writes tags encoded once, through a ByteOutput
+public class TokensWriter
+{
+	private static final byte[] START = ByteOutput.bytes("<tokens>" + System.lineSeparator());
+	private static final byte[] END = ByteOutput.bytes("</tokens>\n" + System.lineSeparator());
+
+	// tags by TokenBuffer type code
+	private static final byte[][] OPEN = new byte[TokenBuffer.typeNames.length][];
+	private static final byte[][] CLOSE = new byte[TokenBuffer.typeNames.length][];
+
+	static
+	{
+		for (int type = 0; type < TokenBuffer.typeNames.length; type++)
+		{
+			OPEN[type] = ByteOutput.bytes("\t<" + TokenBuffer.typeNames[type] + "> ");
+			CLOSE[type] = ByteOutput.bytes(" </" + TokenBuffer.typeNames[type] + ">" + System.lineSeparator());
+		}
+	}
+
+	public ByteOutput out;
+	public TokenBuffer tokens;
+	public int mask = -1; // token number i is at i & mask in tokens, see JackTokenizer.mask
+	public int written; // number of tokens written so far
+
+	public TokensWriter(TokenBuffer t, OutputStream o)
+	{
+		tokens = t;
+		out = new ByteOutput(o);
+		out.write(START); //start tokens tag
+	}
+
+	// write every token up to and including token number index that isn't written yet
+	public void upTo(int index)
+	{
+		while (written <= index)
+			write(written++ & mask);
+	}
+
+	// end the file and close it
+	public void finish()
+	{
+		if (out == null) // already finished
+			return;
+
+		out.write(END); // end tokens tag
+		out.close();
+		out = null;
+	}
+
+	// write the token kept at i, its value taken from the buffer as the lexer stored it
+	private void write(int i)
+	{
+		int type = tokens.type[i];
+		String value;
+
+		switch (type)
+		{
+			case TokenBuffer.KEYWORD:
+			case TokenBuffer.SYMBOL:
+			case TokenBuffer.IDENTIFIER:
+				value = tokens.text(i);
+				break;
+
+			case TokenBuffer.INT_CONST:
+				value = tokens.intText(i);
+				break;
+
+			default: // string constants have always been written empty
+				value = "";
+		}
+
+		out.write(OPEN[type]);
+		out.write(value);
+		out.write(CLOSE[type]);
+	}
+}
@@ -0,0 +1,38 @@
+package syntax_analyzer;
+
+// visitor that writes a parse tree out as the usual Completed.xml
+public class XmlTreeWriter implements ParseTreeVisitor
+{
+	public XmlWriter xml;
+	private LineCounter lines; // positions of the errors
+
+	public XmlTreeWriter(XmlWriter x)
+	{
+		xml = x;
+	}
+
+	public void startNode(ParseTree tree, int node)
+	{
+		xml.startNode(tree.kind[node]);
+	}
+
+	public void endNode(ParseTree tree, int node)
+	{
+		xml.endNode(tree.kind[node]);
+	}
+
+	public void token(ParseTree tree, int node)
+	{
+		xml.token(tree.tokenType[node], tree.text(node));
+	}
+
+	// written the way CompilationEngine writes it, with the position of the token the error leaf points to
+	public void error(ParseTree tree, int node)
+	{
+		if (lines == null || lines.source != tree.tokens.source)
+			lines = new LineCounter(tree.tokens.source);
+
+		int index = tree.base + tree.token[node];
+		xml.error(new Diagnostic(tree.tokens, index < tree.tokens.size ? index : -1, lines, tree.text(node)).toString());
+	}
+}
@@ -0,0 +1,170 @@
+package syntax_analyzer;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import util.Keyword;
+import util.NodeKind;
+import util.TokenType;
+
+// writes the parse tree as XML while the parser walks the tokens, nothing is kept except the open nodes
+// the layout is exactly what CompilationEngine used to build up as one big string
+// every tag is encoded once into the tables below, writing a node or token only copies bytes into the output buffer
+public class XmlWriter implements ParseListener
+{
+	// tags by NodeKind
+	private static final byte[][] START = new byte[NodeKind.names.length][];
+	private static final byte[][] END = new byte[NodeKind.names.length][];
+
+	// tags by TokenBuffer type code: before the value, after it, after it for a variable's type, and without the space
+	private static final byte[][] OPEN = new byte[TokenBuffer.typeNames.length][];
+	private static final byte[][] CLOSE = new byte[TokenBuffer.typeNames.length][];
+	private static final byte[][] CLOSE_SPACED = new byte[TokenBuffer.typeNames.length][];
+	private static final byte[][] CLOSE_TIGHT = new byte[TokenBuffer.typeNames.length][];
+
+	// what a character is written as, by character
+	private static final byte[][] OPERATORS = new byte[128][]; // symbols directly inside an expression
+	private static final byte[][] ESCAPES = new byte[128][]; // error messages
+
+	private static final byte[] ERROR_START = ByteOutput.bytes("<error> ");
+	private static final byte[] ERROR_END = ByteOutput.bytes(" </error>\n");
+
+	static
+	{
+		for (int kind = 0; kind < NodeKind.names.length; kind++)
+		{
+			START[kind] = ByteOutput.bytes("<" + NodeKind.names[kind] + ">\n");
+			END[kind] = ByteOutput.bytes("</" + NodeKind.names[kind] + ">\n");
+		}
+		START[NodeKind.SUBROUTINE_DEC] = ByteOutput.bytes("<subroutineDec> \n");
+		END[NodeKind.CLASS] = ByteOutput.bytes("</class>" + System.lineSeparator()); // the class end tag ends the file with println
+
+		for (int type = 0; type < TokenBuffer.typeNames.length; type++)
+		{
+			String tag = TokenBuffer.typeNames[type];
+			OPEN[type] = ByteOutput.bytes("<" + tag + "> ");
+			CLOSE[type] = ByteOutput.bytes(" </" + tag + ">\n");
+			CLOSE_SPACED[type] = ByteOutput.bytes(" </" + tag + "> \n");
+			CLOSE_TIGHT[type] = ByteOutput.bytes("</" + tag + ">\n");
+		}
+
+		OPERATORS['<'] = ByteOutput.bytes("&lt;");
+		OPERATORS['>'] = ByteOutput.bytes("&gt;");
+		OPERATORS['&'] = ByteOutput.bytes("&amp'");
+
+		ESCAPES['&'] = ByteOutput.bytes("&amp;");
+		ESCAPES['<'] = ByteOutput.bytes("&lt;");
+		ESCAPES['>'] = ByteOutput.bytes("&gt;");
+	}
+
+	public ByteOutput out;
+
+	// one entry per open node
+	private int[] kinds = new int[32]; // NodeKind of the node
+	private int[] children = new int[32]; // number of tokens written directly inside the node
+	private int[] elseAt = new int[32]; // for ifStatement, position of the else keyword, -1 before it
+	private int depth;
+
+	public XmlWriter(OutputStream o)
+	{
+		this(new ByteOutput(o));
+	}
+
+	public XmlWriter(ByteOutput o)
+	{
+		out = o;
+	}
+
+	// write the start tag of a node
+	public void startNode(int kind)
+	{
+		if (depth == kinds.length) // more nesting than ever before, make room
+		{
+			kinds = Arrays.copyOf(kinds, depth * 2);
+			children = Arrays.copyOf(children, depth * 2);
+			elseAt = Arrays.copyOf(elseAt, depth * 2);
+		}
+
+		kinds[depth] = kind;
+		children[depth] = 0;
+		elseAt[depth] = -1;
+		depth++;
+
+		out.write(START[kind]);
+	}
+
+	// write the end tag of a node, the class end tag ends the file
+	public void endNode(int kind)
+	{
+		depth--;
+		out.write(END[kind]);
+	}
+
+	// write a token inside the current node, type is its TokenBuffer type code
+	public void token(int type, String value)
+	{
+		int parent = depth > 0 ? kinds[depth - 1] : -1;
+		int index = depth > 0 ? children[depth - 1]++ : 0; // position of this token among the node's tokens
+
+		out.write(OPEN[type]);
+
+		// operators directly inside an expression are escaped
+		if (parent == NodeKind.EXPRESSION && type == TokenBuffer.SYMBOL)
+			out.write(value, OPERATORS);
+		else
+			out.write(value);
+
+		// the type of a variable or parameter is followed by an extra space
+		if ((index == 1 && (parent == NodeKind.CLASS_VAR_DEC || parent == NodeKind.VAR_DEC)) || (index % 3 == 0 && parent == NodeKind.PARAMETER_LIST))
+		{
+			out.write(CLOSE_SPACED[type]);
+			return;
+		}
+
+		if (parent == NodeKind.IF_STATEMENT)
+		{
+			if (type == TokenBuffer.KEYWORD && value.equals(Keyword.ELSE.word))
+				elseAt[depth - 1] = index;
+
+			// the } closing the else block ( else { ... } ) has no space before its end tag
+			if (elseAt[depth - 1] >= 0 && index == elseAt[depth - 1] + 2)
+			{
+				out.write(CLOSE_TIGHT[type]);
+				return;
+			}
+		}
+
+		out.write(CLOSE[type]);
+	}
+
+	// write an error where the tokens stopped matching the grammar, message says where and what was expected
+	public void error(String message)
+	{
+		out.write(ERROR_START);
+		out.write(message, ESCAPES);
+		out.write(ERROR_END);
+	}
+
+	// write out what is buffered and close the output file
+	public void close()
+	{
+		out.close();
+	}
+
+	// as a ParseListener, the parser writes straight to the file
+
+	public void token(int index, TokenType type, String text)
+	{
+		token(type.ordinal(), text);
+	}
+
+	public void error(int index, Diagnostic d)
+	{
+		error(d.toString());
+	}
+
+	public void finish()
+	{
+		close();
+	}
+}
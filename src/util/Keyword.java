@@ -1,32 +1,83 @@
 package util;
 
-public class Keyword {
-	public static final String CLASS = "class";
-	public static final String METHOD = "method";
-	public static final String FUNCTION = "function";
-	public static final String CONSTRUCTOR = "constructor";
-	public static final String INT = "int";
-	public static final String BOOLEAN = "boolean";
-	public static final String CHAR = "char";
-	public static final String VOID = "void";
-	public static final String VAR = "var";
-	public static final String STATIC = "static";
-	public static final String FIELD = "field";
-	public static final String LET = "let";
-	public static final String DO = "do";
-	public static final String IF = "if";
-	public static final String ELSE = "else";
-	public static final String WHILE = "while";
-	public static final String RETURN = "return";
-	public static final String TRUE = "true";
-	public static final String FALSE = "false";
-	public static final String NULL = "null";
-	public static final String THIS = "this";
-
-	public static final String[] values = { CLASS, METHOD, FUNCTION, CONSTRUCTOR, INT, BOOLEAN, CHAR, VOID, VAR, STATIC, FIELD, LET, DO, IF, ELSE, WHILE,
-			RETURN, TRUE, FALSE, NULL, THIS };
-
-	public static String[] values() {
-		return values;
+import java.util.Arrays;
+
+// the Jack keywords, the code of a keyword is its ordinal
+public enum Keyword {
+	CLASS("class"),
+	METHOD("method"),
+	FUNCTION("function"),
+	CONSTRUCTOR("constructor"),
+	INT("int"),
+	BOOLEAN("boolean"),
+	CHAR("char"),
+	VOID("void"),
+	VAR("var"),
+	STATIC("static"),
+	FIELD("field"),
+	LET("let"),
+	DO("do"),
+	IF("if"),
+	ELSE("else"),
+	WHILE("while"),
+	RETURN("return"),
+	TRUE("true"),
+	FALSE("false"),
+	NULL("null"),
+	THIS("this");
+
+	public final String word; // the keyword as written in Jack
+
+	private static final Keyword[] all = values();
+
+	Keyword(String word) {
+		this.word = word;
+	}
+
+	// a word can only be the keyword in its slot, slot = (3 * first letter + 7 * second letter + length) mod 64
+	// these factors give every keyword a slot of its own, so a word is recognised with one compare
+	private static final byte[] slots = new byte[64];
+
+	static {
+		Arrays.fill(slots, (byte) -1);
+
+		for (Keyword k : all) {
+			int slot = slot(k.word, 0, k.word.length());
+			if (slots[slot] >= 0)
+				throw new IllegalStateException(all[slots[slot]] + " and " + k + " have the same slot");
+			slots[slot] = (byte) k.ordinal();
+		}
+	}
+
+	// the Keyword with this code, null for -1
+	public static Keyword of(int code) {
+		return code < 0 ? null : all[code];
+	}
+
+	// code of the keyword made of the len characters of s at start, -1 if they are not exactly a keyword (case matters)
+	public static int code(CharSequence s, int start, int len) {
+		if (len < 2)
+			return -1;
+
+		int k = slots[slot(s, start, len)];
+		if (k < 0 || all[k].word.length() != len)
+			return -1;
+
+		String keyword = all[k].word;
+		for (int i = 0; i < len; i++) {
+			if (keyword.charAt(i) != s.charAt(start + i))
+				return -1;
+		}
+
+		return k;
+	}
+
+	// code of keyword s, -1 if it is not one
+	public static int code(String s) {
+		return code(s, 0, s.length());
+	}
+
+	private static int slot(CharSequence s, int start, int len) {
+		return (3 * s.charAt(start) + 7 * s.charAt(start + 1) + len) & 63;
 	}
 }
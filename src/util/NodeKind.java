@@ -0,0 +1,28 @@
+package util;
+
+public class NodeKind {
+	// grammar rules, each one is a node of the parse tree
+	public static final int CLASS = 0;
+	public static final int CLASS_VAR_DEC = 1;
+	public static final int SUBROUTINE_DEC = 2;
+	public static final int PARAMETER_LIST = 3;
+	public static final int SUBROUTINE_BODY = 4;
+	public static final int VAR_DEC = 5;
+	public static final int STATEMENTS = 6;
+	public static final int LET_STATEMENT = 7;
+	public static final int IF_STATEMENT = 8;
+	public static final int WHILE_STATEMENT = 9;
+	public static final int DO_STATEMENT = 10;
+	public static final int RETURN_STATEMENT = 11;
+	public static final int EXPRESSION = 12;
+	public static final int TERM = 13;
+	public static final int EXPRESSION_LIST = 14;
+
+	// leaves
+	public static final int TOKEN = 15;
+	public static final int ERROR = 16;
+
+	// XML tag of every node kind
+	public static final String[] names = { "class", "classVarDec", "subroutineDec", "parameterList", "subroutineBody", "varDec", "statements",
+			"letStatement", "ifStatement", "whileStatement", "doStatement", "returnStatement", "expression", "term", "expressionList", "token", "error" };
+}
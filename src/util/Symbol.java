@@ -0,0 +1,61 @@
+package util;
+
+// the Jack symbols, each a single character
+public enum Symbol {
+	LBRACE('{'),
+	RBRACE('}'),
+	LPAREN('('),
+	RPAREN(')'),
+	LBRACKET('['),
+	RBRACKET(']'),
+	DOT('.'),
+	COMMA(','),
+	SEMICOLON(';'),
+	PLUS('+', true),
+	MINUS('-', true),
+	STAR('*', true),
+	SLASH('/', true),
+	AMP('&', true),
+	PIPE('|', true),
+	LT('<', true),
+	GT('>', true),
+	EQ('=', true),
+	TILDE('~');
+
+	public final char c; // the symbol character
+	public final String text; // the same as a String
+	public final boolean op; // a binary operator of an expression
+
+	private static final Symbol[] all = values();
+	private static final Symbol[] byChar = new Symbol[128];
+
+	static {
+		for (Symbol s : all)
+			byChar[s.c] = s;
+	}
+
+	Symbol(char c) {
+		this(c, false);
+	}
+
+	Symbol(char c, boolean op) {
+		this.c = c;
+		this.text = String.valueOf(c);
+		this.op = op;
+	}
+
+	// the Symbol with this code (ordinal), null for -1
+	public static Symbol of(int code) {
+		return code < 0 ? null : all[code];
+	}
+
+	// the Symbol c, null if c is not a symbol
+	public static Symbol of(char c) {
+		return c < 128 ? byChar[c] : null;
+	}
+
+	// the Symbol written as s, null if s is not a symbol
+	public static Symbol of(String s) {
+		return s.length() == 1 ? of(s.charAt(0)) : null;
+	}
+}
@@ -1,9 +1,32 @@
 package util;
 
-public class TokenType {
-	public static final String KEYWORD = "keyword";
-	public static final String SYMBOL = "symbol";
-	public static final String IDENTIFIER = "identifier";
-	public static final String INT_CONST = "integer_constant";
-	public static final String STRING_CONST = "string_constant";
+// kinds of token, in the order of the TokenBuffer type codes, so a type code is the ordinal
+public enum TokenType {
+	KEYWORD("keyword"),
+	SYMBOL("symbol"),
+	IDENTIFIER("identifier"),
+	INT_CONST("integer_constant"),
+	STRING_CONST("string_constant");
+
+	public final String tag; // name written in the XML
+
+	private static final TokenType[] all = values();
+
+	TokenType(String tag) {
+		this.tag = tag;
+	}
+
+	// the TokenType with this type code
+	public static TokenType of(int code) {
+		return all[code];
+	}
+
+	// the TokenType written as tag, null if there is none
+	public static TokenType of(String tag) {
+		for (TokenType t : all) {
+			if (t.tag.equals(tag))
+				return t;
+		}
+		return null;
+	}
 }
\ No newline at end of file